@@ -0,0 +1,129 @@
+package com.rest.benchmark;
+
+import com.rest.service.DAO.EmployeeDAO;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Синтетическая нагрузка с медленной базой: каждый вызов DAO дополнительно ждет dbLatencyMs.
+// Сервлет-контейнер моделируется пулом из CONTAINER_THREADS потоков, через который проходит
+// пачка из BURST запросов GET /employees/{id}. В режиме sync поток контейнера ждет базу
+// сам, в режиме async он только запускает обработчик /api/async/... и освобождается, а
+// ответ дописывается отдельной короткой диспетчеризацией, как это делает настоящий контейнер.
+// Результат - время обработки всей пачки и число ответов 503.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AsyncThroughputBenchmark {
+
+    private static final int ROWS = 10000;
+    private static final int CONTAINER_THREADS = 8;
+    private static final int BURST = 200;
+
+    @Param({"sync", "async"})
+    private String mode;
+
+    @Param({"20"})
+    private int dbLatencyMs;
+
+    private AnnotationConfigWebApplicationContext context;
+    private MockMvc mockMvc;
+    private ExecutorService containerThreads;
+    private String path;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Responses {
+        public int rejected;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BeanPostProcessor slowDao = new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof EmployeeDAO)) {
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.addInterface(EmployeeDAO.class);
+                proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                    Thread.sleep(dbLatencyMs);
+                    return invocation.proceed();
+                });
+                return proxyFactory.getProxy();
+            }
+        };
+        context = BenchmarkContext.start("async" + mode, ROWS, slowDao);
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        containerThreads = Executors.newFixedThreadPool(CONTAINER_THREADS);
+        path = "async".equals(mode) ? "/api/async/employees/{id}" : "/api/employees/{id}";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        containerThreads.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public void burst(Responses responses) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BURST);
+        AtomicInteger rejected = new AtomicInteger();
+        for (int i = 0; i < BURST; i++) {
+            int id = ThreadLocalRandom.current().nextInt(ROWS) + 1;
+            containerThreads.execute(() -> handle(id, done, rejected));
+        }
+        done.await();
+        responses.rejected += rejected.get();
+    }
+
+    private void handle(int id, CountDownLatch done, AtomicInteger rejected) {
+        try {
+            MvcResult result = mockMvc.perform(get(path, id)).andReturn();
+            if (result.getRequest().isAsyncStarted()) {
+                MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+                asyncContext.addDispatchHandler(() -> containerThreads.execute(() -> {
+                    try {
+                        complete(mockMvc.perform(asyncDispatch(result)).andReturn(), rejected);
+                    } catch (Exception e) {
+                        rejected.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }));
+                return;
+            }
+            complete(result, rejected);
+            done.countDown();
+        } catch (Exception e) {
+            rejected.incrementAndGet();
+            done.countDown();
+        }
+    }
+
+    private static void complete(MvcResult result, AtomicInteger rejected) {
+        if (result.getResponse().getStatus() == 503) {
+            rejected.incrementAndGet();
+        }
+    }
+}
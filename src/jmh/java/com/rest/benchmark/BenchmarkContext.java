@@ -0,0 +1,62 @@
+package com.rest.benchmark;
+
+import com.rest.configuration.MyConfig;
+import com.rest.service.existence.EmployeeExistenceFilter;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.sql.DataSource;
+
+// Поднимает настоящую конфигурацию приложения MyConfig поверх встроенной базы H2 в памяти
+// и заполняет таблицу employees нужным количеством строк. Параметры подключения и диалект
+// подменяются системными свойствами, они важнее значений из application.properties.
+public final class BenchmarkContext {
+
+    // Совпадает с allocationSize у @TableGenerator в Employee
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private BenchmarkContext() {
+    }
+
+    // postProcessors позволяют бенчмарку подменить бины приложения, например замедлить DAO
+    public static AnnotationConfigWebApplicationContext start(String database, int rows,
+                                                              BeanPostProcessor... postProcessors) {
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.primary.url", "jdbc:h2:mem:" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        System.setProperty("db.primary.user", "sa");
+        System.setProperty("db.primary.password", "");
+        System.setProperty("db.replica.url", "");
+        System.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("hibernate.show_sql", "false");
+        System.setProperty("hibernate.hbm2ddl.auto", "create");
+
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(MyConfig.class);
+        context.addBeanFactoryPostProcessor(beanFactory -> {
+            for (BeanPostProcessor postProcessor : postProcessors) {
+                beanFactory.addBeanPostProcessor(postProcessor);
+            }
+        });
+        context.refresh();
+        seed(context.getBean(DataSource.class), rows);
+        // Строки вставлены мимо сервиса, поэтому множество id для проверки существования
+        // строим заново, иначе контроллеры отвечали бы 404 на всех засеянных работников
+        context.getBean(EmployeeExistenceFilter.class).rebuild();
+        return context;
+    }
+
+    // Строки вставляются одним INSERT ... SELECT на стороне базы, так быстрее всего получить
+    // миллион работников. Генератор id сдвигается за последний вставленный id: оптимизатор
+    // pooled считает значение в таблице верхней границей блока из allocationSize id.
+    private static void seed(DataSource dataSource, int rows) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("insert into employees (id, name, surname, department, salary, version) " +
+                "select x, concat('Name', x), concat('Surname', x), concat('Department', mod(x, 20)), " +
+                "1000 + mod(x * 7919, 9000), 0 from system_range(1, ?)", rows);
+        jdbc.update("delete from id_generator");
+        jdbc.update("insert into id_generator (name, next_value) values ('employees', ?)", rows + ID_ALLOCATION_SIZE);
+    }
+}
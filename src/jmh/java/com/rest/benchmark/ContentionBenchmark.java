@@ -0,0 +1,109 @@
+package com.rest.benchmark;
+
+import com.rest.entity.Employee;
+import com.rest.service.services.EmployeeService;
+import org.hibernate.LockMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Конкурентные изменения одних и тех же работников: THREADS потоков увеличивают зарплату
+// случайного из hotRows работников. optimistic - как клиент PUT с версией: читает работника
+// без блокировки, сохраняет копию через EmployeeService и при конфликте версий перечитывает
+// и повторяет. saveEmployee тоже не блокирует строку: старые отдел и зарплату для статистики
+// он читает обычным select, так что единственная защита - условие на версию в UPDATE.
+// pessimistic - читает строку с SELECT ... FOR UPDATE и меняет ее в той же
+// транзакции, остальные писатели этой строки ждут коммита. После каждой итерации печатается,
+// сколько повторов пришлось на 1000 изменений.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(ContentionBenchmark.THREADS)
+@Fork(1)
+public class ContentionBenchmark {
+
+    static final int THREADS = 16;
+
+    private static final int ROWS = 10000;
+
+    @Param({"optimistic", "pessimistic"})
+    private String locking;
+
+    @Param({"1", "16", "256"})
+    private int hotRows;
+
+    private AnnotationConfigWebApplicationContext context;
+    private EmployeeService service;
+    private SessionFactory sessionFactory;
+    private TransactionTemplate transaction;
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("contention" + locking + hotRows, ROWS);
+        service = context.getBean(EmployeeService.class);
+        sessionFactory = context.getBean(SessionFactory.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        updates.reset();
+        retries.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCounters() {
+        long total = updates.sum();
+        System.out.printf("%n%s, %d hot rows: %d updates, %.1f retries per 1000 updates%n",
+                locking, hotRows, total, total == 0 ? 0 : retries.sum() * 1000.0 / total);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int raiseSalary() {
+        int id = ThreadLocalRandom.current().nextInt(hotRows) + 1;
+        int salary = "optimistic".equals(locking) ? raiseOptimistic(id) : raisePessimistic(id);
+        updates.increment();
+        return salary;
+    }
+
+    private int raiseOptimistic(int id) {
+        while (true) {
+            Employee current = service.getEmployee(id);
+            Employee update = new Employee(id, current.getName(), current.getSurname(), current.getDepartment(),
+                    current.getSalary() + 1);
+            update.setVersion(current.getVersion());
+            try {
+                service.saveEmployee(update);
+                return update.getSalary();
+            } catch (OptimisticLockingFailureException | StaleStateException e) {
+                retries.increment();
+            }
+        }
+    }
+
+    private int raisePessimistic(int id) {
+        return transaction.execute(status -> {
+            Employee employee = sessionFactory.getCurrentSession().get(Employee.class, id, LockMode.PESSIMISTIC_WRITE);
+            employee.setSalary(employee.getSalary() + 1);
+            service.saveEmployee(employee);
+            return employee.getSalary();
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package com.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.servlet.Filter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// Полный путь запроса через DispatcherServlet: фильтры, контроллер, сервис, DAO, база
+// и сериализация ответа. Сервлет-контейнер заменен MockMvc.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeControllerBenchmark {
+
+    private static final int ROWS = 10000;
+
+    private AnnotationConfigWebApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("controller", ROWS);
+        DefaultMockMvcBuilder builder = MockMvcBuilders.webAppContextSetup(context);
+        builder.addFilters(context.getBean("requestMetricsFilter", Filter.class));
+        mockMvc = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getEmployee() throws Exception {
+        int id = ThreadLocalRandom.current().nextInt(ROWS) + 1;
+        return mockMvc.perform(get("/api/employees/{id}", id)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getEmployeesPage() throws Exception {
+        int after = ThreadLocalRandom.current().nextInt(ROWS);
+        return mockMvc.perform(get("/api/employees").param("after", Integer.toString(after))
+                .param("limit", "100")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult addNewEmployee() throws Exception {
+        return mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"New\",\"surname\":\"Employee\",\"department\":\"Department1\",\"salary\":1500}"))
+                .andReturn();
+    }
+}
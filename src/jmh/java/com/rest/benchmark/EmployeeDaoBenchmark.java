@@ -0,0 +1,83 @@
+package com.rest.benchmark;
+
+import com.rest.entity.Employee;
+import com.rest.service.DAO.EmployeeDAO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Операции EmployeeDAOimpl на встроенной базе с 10 тысячами, 100 тысячами и миллионом
+// работников. DAO работает только внутри транзакции, поэтому каждый вызов обернут
+// в TransactionTemplate, как это делает @Transactional в сервисе.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeDaoBenchmark {
+
+    private static final List<String> ID_AND_NAME = Arrays.asList("id", "name");
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private AnnotationConfigWebApplicationContext context;
+    private EmployeeDAO dao;
+    private TransactionTemplate transaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("dao" + rows, rows);
+        dao = context.getBean(EmployeeDAO.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        transaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee getEmployee() {
+        int id = ThreadLocalRandom.current().nextInt(rows) + 1;
+        return readOnlyTransaction.execute(status -> dao.getEmployee(id));
+    }
+
+    @Benchmark
+    public List<Employee> getEmployeesPage() {
+        int after = ThreadLocalRandom.current().nextInt(rows);
+        return readOnlyTransaction.execute(status -> dao.getEmployeesAfter(after, 100));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> getEmployeeFieldsPage() {
+        int after = ThreadLocalRandom.current().nextInt(rows);
+        return readOnlyTransaction.execute(status -> dao.getEmployeeFieldsAfter(ID_AND_NAME, after, 100));
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public List<Employee> getAllEmployees() {
+        return readOnlyTransaction.execute(status -> dao.getAllEmployees());
+    }
+
+    @Benchmark
+    public Employee saveEmployee() {
+        Employee employee = new Employee(0, "New", "Employee", "Department1", 1500);
+        transaction.executeWithoutResult(status -> dao.saveEmployee(employee));
+        return employee;
+    }
+}
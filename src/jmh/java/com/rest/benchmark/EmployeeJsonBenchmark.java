@@ -0,0 +1,67 @@
+package com.rest.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rest.entity.Employee;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация и разбор Employee и больших списков работников тем же ObjectMapper,
+// что использует приложение.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeJsonBenchmark {
+
+    private static final TypeReference<List<Employee>> EMPLOYEE_LIST = new TypeReference<List<Employee>>() {
+    };
+
+    @Param({"1000", "100000"})
+    private int listSize;
+
+    private ObjectMapper objectMapper;
+    private Employee employee;
+    private byte[] employeeJson;
+    private List<Employee> employees;
+    private byte[] employeesJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        employee = new Employee(42, "Name42", "Surname42", "Department2", 4200);
+        employeeJson = objectMapper.writeValueAsBytes(employee);
+        employees = new ArrayList<>(listSize);
+        for (int i = 1; i <= listSize; i++) {
+            employees.add(new Employee(i, "Name" + i, "Surname" + i, "Department" + (i % 20), 1000 + i % 9000));
+        }
+        employeesJson = objectMapper.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployee() throws IOException {
+        return objectMapper.writeValueAsBytes(employee);
+    }
+
+    @Benchmark
+    public Employee deserializeEmployee() throws IOException {
+        return objectMapper.readValue(employeeJson, Employee.class);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployeeList() throws IOException {
+        return objectMapper.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public List<Employee> deserializeEmployeeList() throws IOException {
+        return objectMapper.readValue(employeesJson, EMPLOYEE_LIST);
+    }
+}
@@ -0,0 +1,70 @@
+package com.rest.benchmark;
+
+import com.rest.entity.Employee;
+import com.rest.service.search.SearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Запросы к прогретому поисковому индексу: подстрока, префикс, отдел с диапазоном зарплаты
+// и только диапазон зарплаты. Имена и фамилии собираются из слогов, чтобы триграммы
+// распределялись примерно как у настоящих имен.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+    private static final String[] SYLLABLES = {"al", "an", "ar", "be", "da", "el", "ev", "ia", "ka",
+            "li", "ma", "mi", "na", "ni", "ol", "ra", "ri", "sa", "ta", "to", "va", "vi", "ya", "za"};
+
+    @Param({"100000", "1000000"})
+    private int documents;
+
+    private SearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new SearchIndex();
+        for (int id = 1; id <= documents; id++) {
+            index.add(new Employee(id, word(random, 2), word(random, 3),
+                    "Department" + random.nextInt(20), 1000 + random.nextInt(9000)));
+        }
+        System.out.printf("%n%d documents, ~%d bytes per document%n",
+                index.getDocumentCount(), index.estimateMemoryBytes() / index.getDocumentCount());
+    }
+
+    @Benchmark
+    public List<Employee> substring() {
+        return index.search("arin", null, null, null, 0, 100);
+    }
+
+    @Benchmark
+    public List<Employee> prefix() {
+        return index.search("ma", null, null, null, 0, 100);
+    }
+
+    @Benchmark
+    public List<Employee> departmentAndSalary() {
+        return index.search(null, "Department7", 5000, 5100, 0, 100);
+    }
+
+    @Benchmark
+    public List<Employee> salaryRange() {
+        return index.search(null, null, 5000, 5010, 0, 100);
+    }
+
+    private static String word(Random random, int syllables) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.toString();
+    }
+}
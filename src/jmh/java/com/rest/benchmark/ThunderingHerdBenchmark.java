@@ -0,0 +1,97 @@
+package com.rest.benchmark;
+
+import com.rest.service.DAO.EmployeeDAO;
+import com.rest.service.services.EmployeeService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Наплыв одинаковых чтений: THREADS потоков без пауз запрашивают одного и того же работника
+// или одну и ту же страницу списка через EmployeeService. Каждый вызов DAO дополнительно
+// ждет dbLatencyMs, как медленный запрос к базе. Режим SampleTime дает распределение времени
+// ответа (p99 и выше), а после каждой итерации печатается, сколько вызовов DAO пришлось на
+// 1000 запросов, с объединением чтений и без него.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(ThunderingHerdBenchmark.THREADS)
+@Fork(1)
+public class ThunderingHerdBenchmark {
+
+    static final int THREADS = 200;
+
+    private static final int ROWS = 10000;
+    private static final int HOT_ID = 42;
+
+    @Param({"true", "false"})
+    private boolean coalescing;
+
+    @Param({"5"})
+    private int dbLatencyMs;
+
+    private AnnotationConfigWebApplicationContext context;
+    private EmployeeService service;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder daoCalls = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BeanPostProcessor slowDao = new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof EmployeeDAO)) {
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.addInterface(EmployeeDAO.class);
+                proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                    daoCalls.increment();
+                    Thread.sleep(dbLatencyMs);
+                    return invocation.proceed();
+                });
+                return proxyFactory.getProxy();
+            }
+        };
+        System.setProperty("read.coalescing.enabled", Boolean.toString(coalescing));
+        context = BenchmarkContext.start("herd" + coalescing, ROWS, slowDao);
+        service = context.getBean(EmployeeService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        requests.reset();
+        daoCalls.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCounters() {
+        long total = requests.sum();
+        System.out.printf("%ncoalescing=%s: %d requests, %d DAO calls, %.1f DAO calls per 1000 requests%n",
+                coalescing, total, daoCalls.sum(), total == 0 ? 0 : daoCalls.sum() * 1000.0 / total);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.clearProperty("read.coalescing.enabled");
+        context.close();
+    }
+
+    @Benchmark
+    public Object hotEmployee() {
+        requests.increment();
+        return service.getEmployee(HOT_ID);
+    }
+
+    @Benchmark
+    public Object hotPage() {
+        requests.increment();
+        return service.getEmployeesPage(0, 100);
+    }
+}
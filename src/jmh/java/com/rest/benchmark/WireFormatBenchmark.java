@@ -0,0 +1,68 @@
+package com.rest.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rest.entity.Employee;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Сравнение форматов ответа для списка работников: время сериализации и разбора в json,
+// Smile и CBOR теми же билдерами ObjectMapper, что и в MyConfig. Размер закодированного
+// списка печатается при подготовке каждого набора параметров.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<Employee>> EMPLOYEE_LIST = new TypeReference<List<Employee>>() {
+    };
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"1000", "100000"})
+    private int listSize;
+
+    private ObjectMapper objectMapper;
+    private List<Employee> employees;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        switch (format) {
+            case "smile":
+                objectMapper = Jackson2ObjectMapperBuilder.smile().build();
+                break;
+            case "cbor":
+                objectMapper = Jackson2ObjectMapperBuilder.cbor().build();
+                break;
+            default:
+                objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        }
+        employees = new ArrayList<>(listSize);
+        for (int i = 1; i <= listSize; i++) {
+            employees.add(new Employee(i, "Name" + i, "Surname" + i, "Department" + (i % 20), 1000 + i % 9000));
+        }
+        encoded = objectMapper.writeValueAsBytes(employees);
+        System.out.printf("%n%s, %d employees: %d bytes, %.1f bytes per employee%n",
+                format, listSize, encoded.length, (double) encoded.length / listSize);
+    }
+
+    @Benchmark
+    public byte[] encodeList() throws IOException {
+        return objectMapper.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public List<Employee> decodeList() throws IOException {
+        return objectMapper.readValue(encoded, EMPLOYEE_LIST);
+    }
+}
@@ -1,16 +1,59 @@
 package com.rest.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.rest.controller.AsyncEmployeeController;
+import com.rest.controller.MyRestController;
+import com.rest.service.DAO.EmployeeDAO;
+import com.rest.service.admission.AdmissionControlInterceptor;
+import com.rest.service.admission.ConcurrencyLimiter;
+import com.rest.service.async.DbExecutor;
+import com.rest.service.metrics.InstrumentedDataSource;
+import com.rest.service.metrics.InstrumentedJacksonHttpMessageConverter;
+import com.rest.service.metrics.LayerTimingInterceptor;
+import com.rest.service.metrics.MetricsRegistry;
+import com.rest.service.services.EmployeeService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.hibernate5.HibernateTransactionManager;
 import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import javax.sql.DataSource;
 import java.beans.PropertyVetoException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 // Прежде всего мы пометим его как @Configuration
@@ -24,35 +67,123 @@ import java.util.Properties;
 // автоматически создавать транзакции, менеджер транзакций определен ниже, аналогично
 // строке <tx:annotation-driven transaction-manager="transactionManager"/> из XML конфигурации
 @EnableTransactionManagement
-public class MyConfig {
+// Включаем выполнение методов с аннотацией @Scheduled, например периодическую сверку
+// статистики по отделам с базой данных
+@EnableScheduling
+// Настройки, которые удобнее менять без перекомпиляции, вынесены в application.properties,
+// значения из него доступны через объект Environment.
+@PropertySource("classpath:application.properties")
+public class MyConfig implements WebMvcConfigurer {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
     // Теперь нам надо прописать конфигурацию для базы данных для этого нам необходимо создать бин
     // который будет инициализироваться сразу при запуске Spring
     @Bean
     // Этот бин будет не классом, а методом возвращающим объект типа DataSource, дословный перевод
-    // "источник данных". Этот класс является альтернативой JDBC-подключения к базе данных,
-    // для создания этого объекта мы воспользуемся классом ComboPooledDataSource из библиотеки
+    // "источник данных". Этот класс является альтернативой JDBC-подключения к базе данных.
+    // Подключений у нас два вида: основная база для записи и реплика для чтения. Какую из них
+    // использовать решает ReadOnlyRoutingDataSource по признаку readOnly текущей транзакции.
+    // Но Hibernate берет подключение в самом начале транзакции, когда этот признак еще не
+    // выставлен, поэтому оборачиваем маршрутизатор в LazyConnectionDataSourceProxy: он отдает
+    // "ленивое" подключение, а настоящее берет из пула только перед первым SQL запросом.
+    @Primary
+    public DataSource dataSource() {
+        return new LazyConnectionDataSourceProxy(routingDataSource());
+    }
+
+    // Маршрутизатор между пулами основной базы и реплики. Если db.replica.url не задан,
+    // все запросы идут в основную базу.
+    @Bean
+    public ReadOnlyRoutingDataSource routingDataSource() {
+        DataSource primary = pooledDataSource("db.primary");
+        DataSource replica = StringUtils.hasText(env.getProperty("db.replica.url"))
+                ? pooledDataSource("db.replica") : null;
+        return new ReadOnlyRoutingDataSource(primary, replica);
+    }
+
+    // Пул подключений создается по параметрам из application.properties с префиксом prefix:
+    // db.primary.url, db.primary.user и так далее. Размеры пула, кэш PreparedStatement и
+    // таймаут ожидания подключения общие для всех пулов и задаются свойствами db.pool.*.
+    // По умолчанию используется c3p0, свойство db.pool.type=hikari переключает на HikariCP.
+    // Сам пул оборачиваем в InstrumentedDataSource, который замеряет время выдачи подключений
+    // и показывает занятые, свободные подключения и ждущие потоки.
+    private DataSource pooledDataSource(String prefix) {
+        DataSource pool = "hikari".equals(env.getProperty("db.pool.type"))
+                ? hikariDataSource(prefix) : c3p0DataSource(prefix);
+        return new InstrumentedDataSource(prefix, pool);
+    }
+
+    // Для создания пула мы воспользуемся классом ComboPooledDataSource из библиотеки
     // c3p0, как мы помним, эта библиотека ответственна за создание пула подключений к базе
     // данных и контроля этих подключений.
-    public DataSource dataSource() {
+    private DataSource c3p0DataSource(String prefix) {
         ComboPooledDataSource dataSource = new ComboPooledDataSource();
         // Теперь нам нужно задать драйвер подключения, подключение может выкинуть исключение,
         // поэтому обернем это все в блок try-catch
         try {
-            dataSource.setDriverClass("com.mysql.cj.jdbc.Driver");
+            dataSource.setDriverClass(env.getRequiredProperty("db.driver"));
             // Прописываем URL подключения
-            dataSource.setJdbcUrl("jdbc:mysql://localhost:3306/my_db?useSSL=false&serverTimezone=UTC");
+            dataSource.setJdbcUrl(env.getRequiredProperty(prefix + ".url"));
             // Далее задаем пользователя и пароль для подключения
-            dataSource.setUser("bestuser");
-            dataSource.setPassword("bestuser");
+            dataSource.setUser(env.getRequiredProperty(prefix + ".user"));
+            dataSource.setPassword(env.getRequiredProperty(prefix + ".password"));
         } catch (PropertyVetoException e) {
             throw new RuntimeException(e);
         }
+        // Размеры пула: сколько подключений держать всегда, сколько максимум и по сколько
+        // открывать новых, когда свободных не осталось.
+        dataSource.setInitialPoolSize(env.getRequiredProperty("db.pool.minSize", Integer.class));
+        dataSource.setMinPoolSize(env.getRequiredProperty("db.pool.minSize", Integer.class));
+        dataSource.setMaxPoolSize(env.getRequiredProperty("db.pool.maxSize", Integer.class));
+        dataSource.setAcquireIncrement(env.getRequiredProperty("db.pool.acquireIncrement", Integer.class));
+        // Кэш PreparedStatement, чтобы один и тот же запрос не готовился заново на каждом вызове
+        dataSource.setMaxStatements(env.getRequiredProperty("db.pool.maxStatements", Integer.class));
+        dataSource.setMaxStatementsPerConnection(
+                env.getRequiredProperty("db.pool.maxStatementsPerConnection", Integer.class));
+        // Сколько поток ждет свободное подключение, прежде чем получить ошибку, вместо
+        // бесконечного ожидания по умолчанию
+        dataSource.setCheckoutTimeout(env.getRequiredProperty("db.pool.checkoutTimeoutMs", Integer.class));
+        // Простаивающие подключения проверяются в фоне и закрываются после maxIdleTime
+        dataSource.setIdleConnectionTestPeriod(env.getRequiredProperty("db.pool.idleTestPeriodSeconds", Integer.class));
+        dataSource.setMaxIdleTime(env.getRequiredProperty("db.pool.maxIdleTimeSeconds", Integer.class));
         // И возвращаем объект подключения. Еще раз. Создаем объект ComboPoolDataSource, чтобы не
         // беспокоиться о пуле подключений, указываем используемый драйвер, указываем URL
-        // подключения к базе данных, указываем логин-пароль.
+        // подключения к базе данных, указываем логин-пароль и параметры пула.
         return dataSource;
     }
 
+    // Тот же пул на HikariCP. У HikariCP нет своего кэша PreparedStatement, поэтому для MySQL
+    // включаем кэш на стороне драйвера с тем же размером на подключение.
+    private DataSource hikariDataSource(String prefix) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(prefix);
+        config.setDriverClassName(env.getRequiredProperty("db.driver"));
+        config.setJdbcUrl(env.getRequiredProperty(prefix + ".url"));
+        config.setUsername(env.getRequiredProperty(prefix + ".user"));
+        config.setPassword(env.getRequiredProperty(prefix + ".password"));
+        config.setMinimumIdle(env.getRequiredProperty("db.pool.minSize", Integer.class));
+        config.setMaximumPoolSize(env.getRequiredProperty("db.pool.maxSize", Integer.class));
+        config.setConnectionTimeout(env.getRequiredProperty("db.pool.checkoutTimeoutMs", Long.class));
+        config.setIdleTimeout(env.getRequiredProperty("db.pool.maxIdleTimeSeconds", Long.class) * 1000);
+        // Как и c3p0, не падаем при старте приложения, если база недоступна
+        config.setInitializationFailTimeout(-1);
+        if (config.getJdbcUrl().startsWith("jdbc:mysql:")) {
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize",
+                    env.getRequiredProperty("db.pool.maxStatementsPerConnection"));
+        }
+        return new HikariDataSource(config);
+    }
+
     // Теперь надо создать SessionFactory, чтобы не объявлять ее каждый раз в коде.
     @Bean
     // Возвращать будем специализированный класс содержащийся в Spring.
@@ -69,8 +200,28 @@ public class MyConfig {
         // Мы можем добавлять в него свойства как вручную, так и загрузить их из
         // текстового файла. Нам он нужен, чтобы загрузить эти свойства в sessionFactoryBean.
         Properties properties = new Properties();
-        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
-        properties.setProperty("hibernate.show_sql", "true");
+        properties.setProperty("hibernate.dialect", env.getRequiredProperty("hibernate.dialect"));
+        properties.setProperty("hibernate.show_sql", env.getRequiredProperty("hibernate.show_sql"));
+        // Автоматическое создание схемы по сущностям, нужно для встроенной базы в бенчмарках
+        if (StringUtils.hasText(env.getProperty("hibernate.hbm2ddl.auto"))) {
+            properties.setProperty("hibernate.hbm2ddl.auto", env.getProperty("hibernate.hbm2ddl.auto"));
+        }
+        // Пакетная запись: Hibernate копит до batch_size однотипных INSERT/UPDATE и отправляет
+        // их одним JDBC batch, а order_inserts/order_updates группируют запросы по сущностям,
+        // чтобы batch не разрывался. batch_versioned_data разрешает batch для версионных сущностей.
+        properties.setProperty("hibernate.jdbc.batch_size", env.getRequiredProperty("jdbc.batch.size"));
+        properties.setProperty("hibernate.order_inserts", "true");
+        properties.setProperty("hibernate.order_updates", "true");
+        properties.setProperty("hibernate.jdbc.batch_versioned_data", "true");
+        // Кэш второго уровня: сущности Employee и результаты запросов списка хранятся в памяти
+        // приложения и большинство чтений не доходит до MySQL. Регионы кэша создает провайдер
+        // JCache, его класс и файл конфигурации берутся из application.properties.
+        properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+        properties.setProperty("hibernate.cache.use_query_cache", "true");
+        properties.setProperty("hibernate.cache.region.factory_class", "jcache");
+        properties.setProperty("hibernate.javax.cache.provider", env.getRequiredProperty("cache.provider"));
+        properties.setProperty("hibernate.javax.cache.uri", env.getRequiredProperty("cache.config"));
+        properties.setProperty("hibernate.javax.cache.missing_cache_strategy", "create-warn");
         sessionFactoryBean.setHibernateProperties(properties);
         // И возвращаем объект сессии. На этом настройка Hibernate закончена.
         return sessionFactoryBean;
@@ -91,6 +242,155 @@ public class MyConfig {
         transactionManager.setSessionFactory(sessionFactory().getObject());
         return transactionManager;
     }
+
+    // ObjectMapper нужен нам для потоковой записи json прямо в ответ сервлета, когда
+    // список работников слишком большой, чтобы собирать его целиком в памяти. Создаем его
+    // тем же билдером, что и Spring MVC, чтобы настройки совпадали с обычными ответами.
+    @Bean
+    @Primary
+    public ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    // Бинарные форматы Jackson для внутренних сервисов: Smile и CBOR кодируют ту же модель,
+    // что и json, но разбираются быстрее и занимают меньше места. Настройки те же, что у json.
+    @Bean
+    public ObjectMapper smileObjectMapper() {
+        return Jackson2ObjectMapperBuilder.smile().build();
+    }
+
+    @Bean
+    public ObjectMapper cborObjectMapper() {
+        return Jackson2ObjectMapperBuilder.cbor().build();
+    }
+
+    // Стандартные конвертеры Jackson Spring MVC заменяем на такие же, но замеряющие время
+    // сериализации ответов и разбора тел запросов. Конвертеры Smile и CBOR Spring MVC
+    // добавляет сам, когда их библиотеки есть в classpath, и ставит их после json. Формат
+    // выбирается по заголовкам Accept и Content-Type, а без Accept ответ остается в json.
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (int i = 0; i < converters.size(); i++) {
+            HttpMessageConverter<?> converter = converters.get(i);
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                converters.set(i, new InstrumentedJacksonHttpMessageConverter(objectMapper(), metricsRegistry,
+                        "json", MediaType.APPLICATION_JSON, new MediaType("application", "*+json")));
+            } else if (converter instanceof MappingJackson2SmileHttpMessageConverter) {
+                converters.set(i, new InstrumentedJacksonHttpMessageConverter(smileObjectMapper(), metricsRegistry,
+                        "smile", APPLICATION_SMILE));
+            } else if (converter instanceof MappingJackson2CborHttpMessageConverter) {
+                converters.set(i, new InstrumentedJacksonHttpMessageConverter(cborObjectMapper(), metricsRegistry,
+                        "cbor", MediaType.APPLICATION_CBOR));
+            }
+        }
+    }
+
+    // Исполнитель для асинхронных обработчиков: медленный запрос к базе занимает его поток,
+    // а не поток сервлет-контейнера. Потоков по умолчанию столько же, сколько подключений
+    // в пуле, больше все равно ждали бы подключения. Очередь ограничена, лишние задачи
+    // отклоняются сразу и превращаются в ответ 503.
+    @Bean
+    @Primary
+    public DbExecutor dbExecutor() {
+        String threads = env.getProperty("db.executor.threads");
+        int maxConcurrency = StringUtils.hasText(threads) ? Integer.parseInt(threads.trim())
+                : env.getRequiredProperty("db.pool.maxSize", Integer.class);
+        return new DbExecutor(maxConcurrency,
+                env.getRequiredProperty("db.executor.queueCapacity", Integer.class),
+                env.getRequiredProperty("db.executor.queueTimeoutMs", Long.class),
+                env.getRequiredProperty("db.executor.virtualThreads", Boolean.class));
+    }
+
+    // Отдельный исполнитель для выгрузок GET/api/employees/export и ?stream=true и импорта
+    // POST/api/employees/import. Выгрузка или импорт всей таблицы идет минутами и держит поток
+    // и подключение все это время, поэтому не должны занимать места в dbExecutor и подчиняться
+    // его таймауту для коротких запросов. Потоков мало, лишние запросы сразу получают 503.
+    @Bean
+    public DbExecutor exportExecutor() {
+        return new DbExecutor("export-executor-",
+                env.getRequiredProperty("export.executor.threads", Integer.class),
+                env.getRequiredProperty("export.executor.queueCapacity", Integer.class),
+                env.getRequiredProperty("db.executor.queueTimeoutMs", Long.class),
+                env.getRequiredProperty("db.executor.virtualThreads", Boolean.class));
+    }
+
+    // Обработчики, возвращающие Callable, тоже выполняются в dbExecutor. Если асинхронный
+    // запрос не завершился за async.request.timeoutMs, Spring MVC выбросит
+    // AsyncRequestTimeoutException, и клиент получит 503.
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(dbExecutor());
+        configurer.setDefaultTimeout(env.getRequiredProperty("async.request.timeoutMs", Long.class));
+    }
+
+    // Admission control перед API работников: ограничение одновременных запросов на каждый
+    // маршрут и отдельные бюджеты для чтения и записи. При admission.adaptive=true бюджеты
+    // подстраиваются под наблюдаемую задержку (AIMD), а настроенные значения становятся
+    // их верхней границей. Метрики и статистика кэша не ограничиваются, чтобы мониторинг
+    // работал и под перегрузкой. Лента изменений тоже не ограничивается: ее соединения открыты
+    // подолгу и заняли бы все места, число ее подписчиков ограничивает сама ChangeFeed.
+    // Выгрузка, импорт, пакетная запись и ?stream=true получают места из отдельного
+    // статического бюджета bulk и не влияют на адаптивные бюджеты чтения и записи.
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!env.getRequiredProperty("admission.enabled", Boolean.class)) {
+            return;
+        }
+        registry.addInterceptor(new AdmissionControlInterceptor(metricsRegistry,
+                        admissionBudget("read"), admissionBudget("write"),
+                        new ConcurrencyLimiter("bulk", env.getRequiredProperty("admission.bulk.maxConcurrent", Integer.class)),
+                        Arrays.asList("/api/employees/export", "/api/employees/import", "/api/employees/batch"),
+                        env.getRequiredProperty("admission.route.maxConcurrent", Integer.class),
+                        env.getRequiredProperty("admission.retryAfterSeconds", Integer.class)))
+                .addPathPatterns("/api/employees", "/api/employees/**",
+                        "/api/async/employees", "/api/async/employees/**")
+                .excludePathPatterns("/api/employees/changes");
+    }
+
+    private ConcurrencyLimiter admissionBudget(String kind) {
+        int maxConcurrent = env.getRequiredProperty("admission." + kind + ".maxConcurrent", Integer.class);
+        return new ConcurrencyLimiter(kind, Math.min(maxConcurrent,
+                env.getRequiredProperty("admission.adaptive.minLimit", Integer.class)), maxConcurrent,
+                env.getRequiredProperty("admission.adaptive.targetLatencyMs", Long.class),
+                env.getRequiredProperty("admission.adaptive", Boolean.class));
+    }
+
+    // Замер времени вызовов сервиса и DAO. Advisor помечен как инфраструктурный, чтобы его
+    // подхватил тот же автопрокси, что создает прокси для @Transactional, а наивысший
+    // приоритет ставит замер снаружи транзакции: время сервиса включает begin и commit.
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor serviceTimingAdvisor(MetricsRegistry registry) {
+        return layerTimingAdvisor(new LayerTimingInterceptor(registry, "service", EmployeeService.class),
+                EmployeeService.class);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor daoTimingAdvisor(MetricsRegistry registry) {
+        return layerTimingAdvisor(new LayerTimingInterceptor(registry, "dao", EmployeeDAO.class),
+                EmployeeDAO.class);
+    }
+
+    // Контроллеры замеряются отдельно от фильтра запросов: фильтр видит весь запрос вместе с
+    // сериализацией и фильтрами, а здесь видно время самого обработчика.
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor controllerTimingAdvisor(MetricsRegistry registry) {
+        return layerTimingAdvisor(LayerTimingInterceptor.forControllers(registry, "controller",
+                MyRestController.class, AsyncEmployeeController.class),
+                new AnnotationMatchingPointcut(RestController.class, RequestMapping.class, true));
+    }
+
+    private Advisor layerTimingAdvisor(LayerTimingInterceptor interceptor, Class<?> layerInterface) {
+        return layerTimingAdvisor(interceptor, new ComposablePointcut(new RootClassFilter(layerInterface)));
+    }
+
+    private Advisor layerTimingAdvisor(LayerTimingInterceptor interceptor, Pointcut pointcut) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
     // Работа с XML файлом несколько проще на вид, там все то, что мы здесь прописали делается
     // под капотом, но нам важно понимать, что именно происходит в Spring.
     // С настройкой Hibernate мы закончили. Пробежимся еще раз по нашим действиям.
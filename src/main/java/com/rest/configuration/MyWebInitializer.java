@@ -1,6 +1,11 @@
 package com.rest.configuration;
 
+import org.springframework.web.filter.DelegatingFilterProxy;
+import org.springframework.web.servlet.FrameworkServlet;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
+
+import javax.servlet.Filter;
+
 // Наш класс будет расширять класс со страшным названием :)
 // AbstractAnnotationConfigDispatcherServletInitializer, этот класс отвечает за настройки
 // диспетчера сервлетов. В нем необходимо имплементировать три метода.
@@ -20,6 +25,26 @@ public class MyWebInitializer extends AbstractAnnotationConfigDispatcherServletI
     protected String[] getServletMappings() {
         return new String[]{"/"};
     }
+    // Асинхронная обработка: обработчик может вернуть CompletableFuture, и поток контейнера
+    // освобождается сразу, а ответ пишется, когда future завершится. Поддержка async должна
+    // быть включена и у DispatcherServlet, и у всех фильтров, через которые идет запрос.
+    @Override
+    protected boolean isAsyncSupported() {
+        return true;
+    }
+    // Фильтры метрик запросов и кэша ответов объявлены бинами в контексте DispatcherServlet,
+    // DelegatingFilterProxy находит их там по имени и передает им каждый запрос. Кэш ответов
+    // стоит после метрик, чтобы ответы из кэша тоже попадали в метрики.
+    @Override
+    protected Filter[] getServletFilters() {
+        return new Filter[]{servletContextFilter("requestMetricsFilter"), servletContextFilter("responseCacheFilter")};
+    }
+
+    private DelegatingFilterProxy servletContextFilter(String beanName) {
+        DelegatingFilterProxy filter = new DelegatingFilterProxy(beanName);
+        filter.setContextAttribute(FrameworkServlet.SERVLET_CONTEXT_PREFIX + getServletName());
+        return filter;
+    }
     // Нам осталось только добавить Tomcat, это мы сделаем без описания. На этом настройка
     // конфигурации закончена.
 }
@@ -0,0 +1,46 @@
+package com.rest.configuration;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+// Выбирает пул подключений для текущей транзакции: транзакции @Transactional(readOnly = true)
+// идут в реплику, все остальные - в основную базу. Работает только вместе с
+// LazyConnectionDataSourceProxy, см. MyConfig.dataSource().
+public class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final Map<String, DataSource> dataSources = new HashMap<>();
+
+    public ReadOnlyRoutingDataSource(DataSource primary, DataSource replica) {
+        dataSources.put(PRIMARY, primary);
+        if (replica != null) {
+            dataSources.put(REPLICA, replica);
+        }
+        setTargetDataSources(new HashMap<>(dataSources));
+        setDefaultTargetDataSource(primary);
+    }
+
+    public Map<String, DataSource> getDataSources() {
+        return dataSources;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARY;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : dataSources.values()) {
+            if (dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) dataSource).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.rest.controller;
+
+import com.rest.configuration.MyConfig;
+import com.rest.entity.Employee;
+import com.rest.service.async.DbExecutor;
+import com.rest.service.dto.EmployeePage;
+import com.rest.service.services.EmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Асинхронные варианты основных обработчиков MyRestController по адресам /api/async/...
+// Каждый обработчик только передает работу с базой в dbExecutor и сразу возвращает
+// CompletableFuture, поток сервлет-контейнера освобождается и может обслуживать другие
+// запросы, пока база отвечает. Когда future завершится, Spring MVC допишет ответ.
+// Все, что зависит от текущего запроса (URL, заголовки), читаем до передачи в исполнитель:
+// в его потоках RequestContextHolder не заполнен.
+@RestController
+@RequestMapping("/api/async")
+public class AsyncEmployeeController {
+
+    @Autowired
+    private EmployeeService service;
+
+    @Autowired
+    private DbExecutor dbExecutor;
+
+    @Autowired
+    private EmployeeOperations operations;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // Страница работников с ETag, как GET/api/employees. Если маркер изменений таблицы совпал
+    // с If-None-Match, отвечаем 304 без чтения страницы.
+    @GetMapping("/employees")
+    public CompletableFuture<ResponseEntity<EmployeePage>> showAllEmployees(
+            @RequestParam(defaultValue = "0") int after,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Parameter limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        UriComponentsBuilder nextLink = ServletUriComponentsBuilder.fromCurrentRequest();
+        return dbExecutor.supply(() -> {
+            String marker = service.getEmployeesChangeMarker();
+            if (marker != null && ifNoneMatch != null && ifNoneMatch.contains("\"" + marker + "\"")) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(marker).build();
+            }
+            EmployeePage page = service.getEmployeesPage(after, limit);
+            if (page.getNextCursor() != null) {
+                page.setNext(nextLink.replaceQueryParam("after", page.getNextCursor())
+                        .replaceQueryParam("limit", limit)
+                        .toUriString());
+            }
+            return (marker != null ? ResponseEntity.ok().eTag(marker) : ResponseEntity.ok()).body(page);
+        });
+    }
+
+    // Работник по id, ETag строится из id и версии строки. Проверку If-None-Match для
+    // ResponseEntity с ETag Spring MVC делает сам и при совпадении отвечает 304.
+    // Несуществующие id отсекаются EmployeeExistenceFilter еще до очереди dbExecutor.
+    // Сама работа с работником общая с MyRestController и лежит в EmployeeOperations.
+    @GetMapping("/employees/{id}")
+    public CompletableFuture<ResponseEntity<Employee>> getEmployee(@PathVariable int id) {
+        operations.requireMightExist(id);
+        return dbExecutor.supply(() -> {
+            Employee employee = operations.getEmployee(id);
+            return ResponseEntity.ok().eTag(EmployeeOperations.eTag(employee)).body(employee);
+        });
+    }
+
+    @PostMapping("/employees")
+    public CompletableFuture<Employee> addNewEmployee(@RequestBody Employee employee) {
+        return dbExecutor.supply(() -> {
+            service.saveEmployee(employee);
+            return employee;
+        });
+    }
+
+    // Как PUT/api/employees: If-Match с 412 и отложенная запись при Prefer: respond-async без If-Match
+    @PutMapping("/employees")
+    public CompletableFuture<ResponseEntity<Employee>> updateEmployee(
+            @RequestBody Employee employee,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return dbExecutor.supply(() -> operations.updateEmployee(employee, prefer, ifMatch));
+    }
+
+    @PatchMapping(value = "/employees/{id}", consumes = {"application/merge-patch+json",
+            MediaType.APPLICATION_JSON_VALUE, MyConfig.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public CompletableFuture<String> patchEmployee(@PathVariable int id, @RequestBody Map<String, Object> patch) {
+        operations.requireMightExist(id);
+        return dbExecutor.supply(() -> operations.patchEmployee(id, patch));
+    }
+
+    @DeleteMapping("/employees/{id}")
+    public CompletableFuture<String> deleteEmployee(@PathVariable int id) {
+        operations.requireMightExist(id);
+        return dbExecutor.supply(() -> operations.deleteEmployee(id));
+    }
+}
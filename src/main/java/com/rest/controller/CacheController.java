@@ -0,0 +1,25 @@
+package com.rest.controller;
+
+import com.rest.service.cache.CacheStatistics;
+import com.rest.service.dto.CacheRegionStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+// Счетчики кэша второго уровня по регионам: попадания, промахи, записи, удаления и
+// вытеснения. По ним подбирается размер кэша в ehcache.xml.
+@RestController
+@RequestMapping("/api")
+public class CacheController {
+
+    @Autowired
+    private CacheStatistics cacheStatistics;
+
+    @GetMapping("/cache/stats")
+    public List<CacheRegionStats> showCacheStats() {
+        return cacheStatistics.getRegionStats();
+    }
+}
@@ -0,0 +1,25 @@
+package com.rest.controller;
+
+import com.rest.service.dto.DepartmentStats;
+import com.rest.service.stats.DepartmentStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+// Статистика по отделам для дашбордов: количество работников, сумма, минимальная,
+// максимальная и средняя зарплата. Отдается из агрегатов в памяти, без запроса к базе.
+@RestController
+@RequestMapping("/api")
+public class DepartmentController {
+
+    @Autowired
+    private DepartmentStatistics departmentStatistics;
+
+    @GetMapping("/departments/stats")
+    public List<DepartmentStats> getDepartmentStats() {
+        return departmentStatistics.getStats();
+    }
+}
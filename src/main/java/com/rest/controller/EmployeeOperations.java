@@ -0,0 +1,128 @@
+package com.rest.controller;
+
+import com.rest.entity.Employee;
+import com.rest.service.exceptionHandling.NoSuchEmployeeException;
+import com.rest.service.exceptionHandling.PreconditionFailedException;
+import com.rest.service.existence.EmployeeExistenceFilter;
+import com.rest.service.services.EmployeeService;
+import com.rest.service.writebehind.WriteBehindQueue;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Общая часть обработчиков работника по id для MyRestController и AsyncEmployeeController:
+// проверка по EmployeeExistenceFilter, 404, If-Match и 412, отложенная запись. Синхронный
+// контроллер вызывает эти методы в потоке запроса, асинхронный - в потоке dbExecutor, поэтому
+// здесь нет ничего, что зависит от текущего запроса.
+@Component
+class EmployeeOperations {
+
+    @Autowired
+    private EmployeeService service;
+
+    @Autowired
+    private WriteBehindQueue writeBehind;
+
+    @Autowired
+    private EmployeeExistenceFilter existenceFilter;
+
+    // На id, которых точно нет, сразу отвечаем 404 без запроса к базе
+    void requireMightExist(int id) {
+        if (!existenceFilter.mightExist(id)) {
+            throw notFound(id);
+        }
+    }
+
+    Employee getEmployee(int id) {
+        requireMightExist(id);
+        Employee employee = service.getEmployee(id);
+        if (employee == null) {
+            throw notFound(id);
+        }
+        return employee;
+    }
+
+    // PUT работника: отложенная запись при Prefer: respond-async, версия из If-Match и 412 при
+    // ее несовпадении, 409 при устаревшей версии из тела. Подробности в MyRestController.
+    // С If-Match запись всегда синхронная: очередь write-behind не может ответить 412 после 202.
+    ResponseEntity<Employee> updateEmployee(Employee employee, String prefer, String ifMatch) {
+        Integer matchedVersion = ifMatch == null ? null : matchedVersion(ifMatch, employee.getId());
+        if (matchedVersion != null) {
+            employee.setVersion(matchedVersion);
+        }
+        if (ifMatch == null && prefer != null && prefer.contains("respond-async") && writeBehind.isEnabled()
+                && employee.getId() != 0) {
+            writeBehind.submit(employee);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("Preference-Applied", "respond-async")
+                    .body(employee);
+        }
+        try {
+            service.saveEmployee(employee);
+        } catch (OptimisticLockingFailureException | StaleStateException e) {
+            if (ifMatch != null) {
+                throw new PreconditionFailedException("Employee with id=" + employee.getId()
+                        + " does not match If-Match " + ifMatch);
+            }
+            throw e;
+        }
+        return ResponseEntity.ok().eTag(eTag(employee)).body(employee);
+    }
+
+    String patchEmployee(int id, Map<String, Object> patch) {
+        requireMightExist(id);
+        if (service.patchEmployee(id, patch) == 0) {
+            throw notFound(id);
+        }
+        return "Employee with ID=" + id + " was updated.";
+    }
+
+    String deleteEmployee(int id) {
+        requireMightExist(id);
+        if (service.deleteEmployee(id) == 0) {
+            throw notFound(id);
+        }
+        return "Employee with ID=" + id + " was deleted.";
+    }
+
+    // ETag работника строится из id и версии строки
+    static String eTag(Employee employee) {
+        return employee.getId() + "-" + employee.getVersion();
+    }
+
+    // Версия из If-Match для работника id. ETag работника - "id-версия", слабые ETag (W/)
+    // тоже принимаются. "*" означает любую версию, тогда проверяется версия из тела запроса.
+    private static Integer matchedVersion(String ifMatch, int id) {
+        String prefix = id + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") && id != 0) {
+                return null;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                tag = tag.substring(1, tag.length() - 1);
+            }
+            if (tag.startsWith(prefix)) {
+                try {
+                    return Integer.parseInt(tag.substring(prefix.length()));
+                } catch (NumberFormatException e) {
+                    break;
+                }
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match employee with id=" + id);
+    }
+
+    private static NoSuchEmployeeException notFound(int id) {
+        return new NoSuchEmployeeException("There is no employee with id=" +
+                id + " in database");
+    }
+}
@@ -0,0 +1,56 @@
+package com.rest.controller;
+
+import com.rest.configuration.ReadOnlyRoutingDataSource;
+import com.rest.service.dto.PoolStats;
+import com.rest.service.metrics.InstrumentedDataSource;
+import com.rest.service.metrics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Метрики приложения. GET/api/metrics отдает все метрики в текстовом формате Prometheus:
+// количество и задержки запросов по маршрутам, время вызовов сервиса и DAO, время
+// сериализации json, пулы подключений и кэш. GET/api/metrics/pool показывает состояние
+// пулов подключений в json: сколько подключений занято, свободно и всего, сколько потоков
+// ждут подключения и гистограмма времени выдачи подключения из пула.
+@RestController
+@RequestMapping("/api")
+public class MetricsController {
+
+    @Autowired
+    private ReadOnlyRoutingDataSource routingDataSource;
+
+    @Autowired
+    private MetricsRegistry registry;
+
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String scrape() {
+        return registry.scrape();
+    }
+
+    @GetMapping("/metrics/pool")
+    public List<PoolStats> showPoolStats() throws SQLException {
+        List<PoolStats> result = new ArrayList<>();
+        for (DataSource dataSource : routingDataSource.getDataSources().values()) {
+            if (dataSource instanceof InstrumentedDataSource) {
+                InstrumentedDataSource pool = (InstrumentedDataSource) dataSource;
+                PoolStats stats = new PoolStats();
+                stats.setName(pool.getName());
+                stats.setType(pool.getPoolType());
+                stats.setBusy(pool.getBusyConnections());
+                stats.setIdle(pool.getIdleConnections());
+                stats.setTotal(pool.getTotalConnections());
+                stats.setWaitingThreads(pool.getThreadsAwaitingConnection());
+                stats.setCheckoutLatency(pool.getCheckoutLatency().snapshot());
+                result.add(stats);
+            }
+        }
+        return result;
+    }
+}
@@ -1,12 +1,57 @@
 package com.rest.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rest.configuration.MyConfig;
 import com.rest.entity.Employee;
+import com.rest.service.async.DbExecutor;
+import com.rest.service.bulk.EmployeeImporter;
+import com.rest.service.changes.ChangeFeed;
+import com.rest.service.dto.BatchSaveResult;
+import com.rest.service.dto.EmployeeFieldsPage;
+import com.rest.service.dto.FlushResult;
+import com.rest.service.dto.WriteBehindStatus;
+import com.rest.service.dto.EmployeeLookupResult;
+import com.rest.service.dto.EmployeePage;
+import com.rest.service.dto.ImportResult;
 import com.rest.service.exceptionHandling.NoSuchEmployeeException;
+import com.rest.service.search.EmployeeSearchIndex;
 import com.rest.service.services.EmployeeService;
+import com.rest.service.writebehind.WriteBehindQueue;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 // В этот раз мы пометим контроллер необычной для нас аннотацией @RestController
 // Она говорит о том, что данный контроллер управляет REST запросами и ответами.
@@ -22,15 +67,274 @@ public class MyRestController {
     @Autowired
     private EmployeeService service;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("smileObjectMapper")
+    private ObjectMapper smileObjectMapper;
+
+    @Autowired
+    @Qualifier("cborObjectMapper")
+    private ObjectMapper cborObjectMapper;
+
+    @Autowired
+    private EmployeeImporter importer;
+
+    @Autowired
+    private EmployeeSearchIndex searchIndex;
+
+    @Autowired
+    private WriteBehindQueue writeBehind;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    private EmployeeOperations operations;
+
+    @Autowired
+    @Qualifier("exportExecutor")
+    private DbExecutor exportExecutor;
+
+    @Value("${employee.batch.chunk.size}")
+    private int batchChunkSize;
+
+    @Value("${export.timeoutMs}")
+    private long exportTimeoutMs;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     // Теперь определим метод которым мы будем получать всех работников, ранее в таблице
     // мы описывали URL для этого метода, вызываться он будет по адресу GET/api/employees.
-    // Внутри все просто, кладем в список результат работы метода getAllEmployees() нашего сервиса.
-    // Spring с помощью библиотеки jackson-databind конвертирует наших работников в json
-    // и в теле ответа будет показан этот json
+    // Таблица может содержать миллионы строк, поэтому отдаем ее страницами: limit - размер
+    // страницы, after - курсор, id последнего работника с предыдущей страницы. Выборка идет
+    // по условию id > after с сортировкой по id, такой запрос использует первичный ключ и
+    // не замедляется на дальних страницах, в отличие от OFFSET.
+    // Spring с помощью библиотеки jackson-databind конвертирует страницу в json,
+    // а в поле next кладем готовую ссылку на следующую страницу.
+    // Клиенты опрашивают список постоянно, поэтому сначала берем маркер изменений таблицы
+    // (счетчик изменений в памяти, см. EmployeeChangeMarker) и отдаем его как ETag.
+    // Если клиент прислал тот же ETag в If-None-Match, checkNotModified выставит статус
+    // 304 Not Modified, и мы вернем пустой ответ, не читая и не сериализуя работников.
     @GetMapping("/employees")
-    public List<Employee> showAllEmployees() {
-        List<Employee> allEmployees = service.getAllEmployees();
-        return allEmployees;
+    public EmployeePage showAllEmployees(@RequestParam(defaultValue = "0") int after,
+                                         @RequestParam(defaultValue = "100") int limit,
+                                         WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Parameter limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (request.checkNotModified(service.getEmployeesChangeMarker())) {
+            return null;
+        }
+        return withNextLink(service.getEmployeesPage(after, limit), limit);
+    }
+
+    // Лента изменений вместо периодического опроса всего списка: GET/api/employees/changes
+    // держит соединение открытым и присылает Server-Sent Events о каждом созданном, измененном
+    // и удаленном работнике после коммита. id события - эпоха запуска и номер изменения, при
+    // переподключении браузер (EventSource) сам присылает Last-Event-ID, и пропущенные изменения
+    // досылаются. Событие reset означает, что пропущенных изменений уже нет в памяти (или
+    // приложение перезапускалось): нужно перечитать GET/api/employees и продолжить ленту
+    // с id этого события.
+    @GetMapping(value = "/employees/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getEmployeeChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                         HttpServletRequest request) {
+        return changeFeed.subscribe(lastEventId, request);
+    }
+
+    // Поиск работников: q - подстрока имени или фамилии без учета регистра (один-два символа
+    // ищутся как начало имени или фамилии), department - точное название отдела, minSalary и
+    // maxSalary - диапазон зарплаты. Все условия необязательны и объединяются через И.
+    // Запрос выполняется по индексу в памяти, без обращения к базе, страницы по курсору
+    // after устроены так же, как в GET/api/employees.
+    @GetMapping("/employees/search")
+    public EmployeePage searchEmployees(@RequestParam(required = false) String q,
+                                        @RequestParam(required = false) String department,
+                                        @RequestParam(required = false) Integer minSalary,
+                                        @RequestParam(required = false) Integer maxSalary,
+                                        @RequestParam(defaultValue = "0") int after,
+                                        @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Parameter limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return withNextLink(searchIndex.search(q, department, minSalary, maxSalary, after, limit), limit);
+    }
+
+    // Только нужные поля: GET/api/employees?fields=id,name отдает страницу, в которой у каждого
+    // работника есть только перечисленные поля (id есть всегда, это курсор страниц). Поля
+    // превращаются в HQL запрос select e.id, e.name ..., поэтому из базы читаются только эти
+    // колонки, а результат - простые строки, а не сущности: Hibernate не создает объекты
+    // Employee и не следит за их изменениями. ETag и страницы - как в обычном списке.
+    @GetMapping(value = "/employees", params = {"fields", "!ids", "!stream"})
+    public EmployeeFieldsPage showEmployeeFields(@RequestParam List<String> fields,
+                                                 @RequestParam(defaultValue = "0") int after,
+                                                 @RequestParam(defaultValue = "100") int limit,
+                                                 WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Parameter limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (request.checkNotModified(service.getEmployeesChangeMarker())) {
+            return null;
+        }
+        EmployeeFieldsPage page = service.getEmployeeFieldsPage(fields, after, limit);
+        page.setNext(nextLink(page.getNextCursor(), limit));
+        return page;
+    }
+
+    private static EmployeePage withNextLink(EmployeePage page, int limit) {
+        page.setNext(nextLink(page.getNextCursor(), limit));
+        return page;
+    }
+
+    private static String nextLink(Integer nextCursor, int limit) {
+        if (nextCursor == null) {
+            return null;
+        }
+        return ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", nextCursor)
+                .replaceQueryParam("limit", limit)
+                .toUriString();
+    }
+
+    // Потоковый режим: GET/api/employees?stream=true отдает всю таблицу одним json массивом,
+    // но не собирает его в памяти. Строки читаются из базы курсором и каждая сразу пишется
+    // в выходной поток сервлета, поэтому расход памяти не зависит от размера таблицы.
+    // Запись идет в exportExecutor, как и выгрузка ниже.
+    @GetMapping(value = "/employees", params = "stream=true")
+    public WebAsyncTask<Void> streamAllEmployees(WebRequest request, HttpServletResponse response) {
+        if (request.checkNotModified(service.getEmployeesChangeMarker())) {
+            return null;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        return exportTask(() -> {
+            ObjectWriter writer = objectMapper.writerFor(Employee.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+                generator.writeStartArray();
+                service.forEachEmployee(employee -> {
+                    try {
+                        writer.writeValue(generator, employee);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+            return null;
+        });
+    }
+
+    // Выгрузка работников для отчетов: GET/api/employees/export отдает всю таблицу (или один
+    // отдел, параметр department) в формате NDJSON - один json объект в строке - или CSV.
+    // Формат выбирается параметром format=ndjson|csv, а без него по заголовку Accept.
+    // Строки читаются из базы курсором и сразу пишутся в ответ, поэтому расход памяти не
+    // зависит от количества строк. Выгрузка выполняется в асинхронном режиме в отдельном
+    // exportExecutor со своим таймаутом export.timeoutMs, а не в потоке сервлет-контейнера и
+    // не в dbExecutor с коротким таймаутом обычных запросов. Если клиент принимает gzip
+    // (Accept-Encoding), ответ сжимается на лету.
+    @GetMapping("/employees/export")
+    public WebAsyncTask<Void> exportEmployees(
+            @RequestParam(required = false) String department,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+        boolean csv;
+        if (format == null) {
+            csv = accept != null && accept.contains("text/csv");
+        } else if ("csv".equals(format) || "ndjson".equals(format)) {
+            csv = "csv".equals(format);
+        } else {
+            throw new IllegalArgumentException("Parameter format must be ndjson or csv");
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        response.setContentType((csv ? TEXT_CSV : MediaType.APPLICATION_NDJSON).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=employees." + (csv ? "csv" : "ndjson"));
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return exportTask(() -> {
+            OutputStream out = response.getOutputStream();
+            OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE) : out;
+            if (csv) {
+                exportCsv(department, target);
+            } else {
+                exportNdjson(department, target);
+            }
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+            out.flush();
+            return null;
+        });
+    }
+
+    private <T> WebAsyncTask<T> exportTask(Callable<T> export) {
+        return new WebAsyncTask<>(exportTimeoutMs, exportExecutor, export);
+    }
+
+    private void exportNdjson(String department, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Employee.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            service.forEachEmployee(department, employee -> {
+                try {
+                    writer.writeValue(generator, employee);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void exportCsv(String department, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+        writer.write("id,name,surname,department,salary,version\r\n");
+        service.forEachEmployee(department, employee -> {
+            try {
+                writer.write(Integer.toString(employee.getId()));
+                writer.write(',');
+                writeCsvField(writer, employee.getName());
+                writer.write(',');
+                writeCsvField(writer, employee.getSurname());
+                writer.write(',');
+                writeCsvField(writer, employee.getDepartment());
+                writer.write(',');
+                writer.write(Integer.toString(employee.getSalary()));
+                writer.write(',');
+                writer.write(Integer.toString(employee.getVersion()));
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    // Поле CSV по RFC 4180: если в значении есть запятая, кавычка или перевод строки,
+    // оно берется в кавычки, а кавычки внутри удваиваются.
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
     }
 
     // Сейчас мы работаем с GET запросом и можем просто прописать его в браузере, в адресной строке.
@@ -44,24 +348,61 @@ public class MyRestController {
     // Название должно совпадать с тем что мы указали в фигурных скобках, иначе ide не поймет
     // откуда брать значение. Внутри метода все, как обычно, вызываем метод, который предоставляет
     // нам одного работника по его id, а jackson переводит это все в json./
+    // Перед обращением к сервису id проверяется по EmployeeExistenceFilter - множеству id всех
+    // работников в памяти: на id, которых точно нет, сразу отвечаем 404 без запроса к базе.
+    // Так же проверяются изменение и удаление по id.
     @GetMapping("/employees/{id}")
-    public Employee getEmployee(@PathVariable int id) {
-        Employee employee = service.getEmployee(id);
-        // Сделаем проверку на то, нашелся ли нужный работник, если нет, то нам необходимо
-        // выбросить исключение, мы создадим это исключение в пакете exceptionHandling
-        // и назовем NoSuchEmployeeException, перейдем в этот класс.
-        // Теперь нам необходимо возбудить исключение и передать в него сообщение.
-        // Смотрим ниже как это делается.
+    public Employee getEmployee(@PathVariable int id, WebRequest request) {
+        // Проверка на то, нашелся ли нужный работник, теперь общая с асинхронным контроллером
+        // и живет в EmployeeOperations: если работника нет, там выбрасывается исключение
+        // NoSuchEmployeeException с сообщением, мы создали его в пакете exceptionHandling.
+        // Теперь нам необходимо обработать исключение и передать в браузер json
+        // с его описанием. Для этого здесь, в контроллере мы создадим отдельный метод,
+        // который и будет обрабатывать исключения, назовем его handleException и
+        // перейдем к нему.
+        Employee employee = operations.getEmployee(id);
+        // ETag работника строится из id и версии строки. Если версия не изменилась с прошлого
+        // запроса клиента, отвечаем 304 Not Modified без тела.
+        if (request.checkNotModified(EmployeeOperations.eTag(employee))) {
+            return null;
+        }
+
+        return employee;
+    }
+
+    // Несколько работников за один запрос: GET/api/employees?ids=1,2,3 вместо цикла по
+    // GET/api/employees/{id}. Все работники читаются в одной транзакции, Hibernate сначала
+    // ищет их в сессии и кэше второго уровня, а остальных загружает запросами id in (...)
+    // порциями. Работники, которых нет в базе, не приводят к 404 - их id возвращаются в
+    // поле missing.
+    @GetMapping(value = "/employees", params = "ids")
+    public EmployeeLookupResult getEmployees(@RequestParam List<Integer> ids,
+                                             @RequestParam(required = false) List<String> fields) {
+        if (fields != null) {
+            throw new IllegalArgumentException("Parameter fields cannot be combined with ids");
+        }
+        return lookupEmployees(ids);
+    }
+
+    // То же самое с id в теле запроса (json массив), когда список не помещается в URL.
+    @PostMapping("/employees/lookup")
+    public EmployeeLookupResult lookupEmployees(@RequestBody List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Parameter ids must contain from 1 to " + MAX_PAGE_SIZE + " ids");
+        }
+        return service.getEmployees(ids);
+    }
+
+    // Один работник с частью полей: GET/api/employees/{id}?fields=name,salary, так же одним
+    // запросом только к нужным колонкам, без загрузки сущности.
+    @GetMapping(value = "/employees/{id}", params = "fields")
+    public Map<String, Object> getEmployeeFields(@PathVariable int id, @RequestParam List<String> fields) {
+        operations.requireMightExist(id);
+        Map<String, Object> employee = service.getEmployeeFields(fields, id);
         if (employee == null) {
-            // Здесь мы создали исключение и передали в него сообщение.
             throw new NoSuchEmployeeException("There is no employee with id=" +
                     id + " in database");
-            // Теперь нам необходимо обработать исключение и передать в браузер json
-            // с его описанием. Для этого здесь, в контроллере мы создадим отдельный метод,
-            // который и будет обрабатывать исключения, назовем его handleException и
-            // перейдем к нему.
         }
-
         return employee;
     }
 
@@ -106,22 +447,128 @@ public class MyRestController {
         return employee;
     }
 
+    // Пакетное добавление и изменение работников. Тело запроса - json массив или NDJSON
+    // (по одному работнику в строке), а для внутренних сервисов - массив в Smile или CBOR. Тело читается потоково через MappingIterator, работники
+    // собираются в порции по batchChunkSize штук и каждая порция сохраняется в своей транзакции
+    // с JDBC batching, поэтому даже сотни тысяч записей не держатся в памяти целиком.
+    @PostMapping(value = "/employees/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+                    MyConfig.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<BatchSaveResult> saveEmployees(InputStream body,
+                                                         @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) {
+        ObjectMapper mapper = MyConfig.APPLICATION_SMILE.isCompatibleWith(contentType) ? smileObjectMapper
+                : MediaType.APPLICATION_CBOR.isCompatibleWith(contentType) ? cborObjectMapper : objectMapper;
+        int saved = 0;
+        List<Employee> chunk = new ArrayList<>(batchChunkSize);
+        try (MappingIterator<Employee> employees = mapper.readerFor(Employee.class).readValues(body)) {
+            while (employees.hasNextValue()) {
+                chunk.add(employees.nextValue());
+                if (chunk.size() == batchChunkSize) {
+                    service.saveAll(chunk);
+                    saved += chunk.size();
+                    chunk = new ArrayList<>(batchChunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                service.saveAll(chunk);
+                saved += chunk.size();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // 400 только для ошибок разбора и проверки тела. Ошибки базы уходят в глобальный
+            // обработчик, который ответит 503 или 500
+            return new ResponseEntity<>(new BatchSaveResult(saved, e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(new BatchSaveResult(saved, null), HttpStatus.OK);
+    }
+
+    // Импорт больших файлов: POST/api/employees/import принимает NDJSON или CSV с заголовком
+    // (name,surname,department,salary и необязательные id и version - формат выгрузки выше),
+    // тело можно сжать gzip и указать Content-Encoding: gzip. Файл читается потоково и
+    // сохраняется порциями, каждая в своей транзакции. Ошибочные строки не останавливают
+    // импорт: в ответе возвращаются счетчики и номера строк с ошибками. Как и выгрузка, импорт
+    // идет в exportExecutor с таймаутом export.timeoutMs, а не в потоке сервлет-контейнера.
+    @PostMapping(value = "/employees/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public WebAsyncTask<ImportResult> importEmployees(InputStream body,
+                                                      @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                      @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false)
+                                                              String contentEncoding) {
+        return exportTask(() -> {
+            InputStream input = "gzip".equalsIgnoreCase(contentEncoding)
+                    ? new GZIPInputStream(body, EXPORT_BUFFER_SIZE) : body;
+            Reader reader = new InputStreamReader(input, contentType.getCharset() != null
+                    ? contentType.getCharset() : StandardCharsets.UTF_8);
+            return "csv".equals(contentType.getSubtype())
+                    ? importer.importCsv(reader) : importer.importNdjson(reader);
+        });
+    }
+
     // Изменение существующего работника./
+    // Если включен write.behind.enabled и клиент прислал заголовок Prefer: respond-async,
+    // изменение не пишется в базу сразу, а ставится в очередь WriteBehindQueue: несколько
+    // изменений одного работника сливаются в одно, а фоновый поток пишет очередь порциями.
+    // Тогда отвечаем 202 Accepted с Preference-Applied: respond-async. Изменение хранится
+    // только в памяти до записи в базу и пишется поверх текущей версии строки (last write
+    // wins), подробности в описании WriteBehindQueue. Записалось ли оно, видно в
+    // GET/api/employees/{id}/write-behind.
+    // Изменение защищено версией строки (optimistic locking): UPDATE выполняется с условием
+    // version = версия из запроса, и если работника уже изменили, клиент получает 409 Conflict
+    // вместо того чтобы молча затереть чужое изменение. Версию можно передать и заголовком
+    // If-Match с ETag из GET/api/employees/{id}: тогда проверяется именно она, а при
+    // несовпадении ответ 412 Precondition Failed. Новый ETag возвращается в ответе.
+    // Запрос с If-Match выполняется сразу, даже если прислан Prefer: respond-async (Prefer -
+    // только пожелание клиента): после 202 несовпадение версии уже некому сообщить, и
+    // отложенное изменение просто потерялось бы.
     @PutMapping("/employees")
-    public Employee updateEmployee(@RequestBody Employee employee) {
-        service.saveEmployee(employee);
-        return employee;
+    public ResponseEntity<Employee> updateEmployee(@RequestBody Employee employee,
+                                                   @RequestHeader(value = "Prefer", required = false) String prefer,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return operations.updateEmployee(employee, prefer, ifMatch);
+    }
+
+    // Сразу записывает в базу все отложенные изменения из очереди write-behind и возвращает,
+    // сколько работников записано и сколько изменений отброшено из-за ошибок.
+    @PostMapping("/employees/flush")
+    public FlushResult flushEmployees() {
+        return writeBehind.flush();
+    }
+
+    // Что стало с отложенным изменением работника после ответа 202: PENDING - еще в очереди,
+    // DROPPED - не записано (например, работника удалили), с причиной, NONE - записано.
+    @GetMapping("/employees/{id}/write-behind")
+    public WriteBehindStatus getWriteBehindStatus(@PathVariable int id) {
+        return writeBehind.getStatus(id);
     }
-    // Удаление работника
+    // Частичное изменение работника. Тело запроса - JSON merge-patch (RFC 7396), в нем
+    // передаются только изменяемые поля, например {"salary": 5000}. Работник не загружается
+    // из базы: поля из патча превращаются в один UPDATE, который трогает только эти колонки
+    // и увеличивает версию строки. Если UPDATE не нашел строку, отвечаем 404. Если меняются
+    // отдел или зарплата, перед UPDATE их старые значения читаются без блокировки строки -
+    // они нужны статистике отделов.
+    @PatchMapping(value = "/employees/{id}", consumes = {"application/merge-patch+json",
+            MediaType.APPLICATION_JSON_VALUE, MyConfig.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public String patchEmployee(@PathVariable int id, @RequestBody Map<String, Object> patch) {
+        return operations.patchEmployee(id, patch);
+    }
+
+    // Удаление работника. Удаляем одним запросом DELETE ... WHERE id = ? в одной транзакции,
+    // без загрузки сущности (для статистики отделов заранее читаются только отдел и зарплата).
+    // Если запрос не затронул ни одной строки, значит такого работника нет, и мы выбрасываем
+    // исключение, которое превратится в 404.
     @DeleteMapping("/employees/{id}")
     public String deleteEmployee(@PathVariable int id) {
-        Employee employee = service.getEmployee(id);
-        if (employee == null) {
-            throw new NoSuchEmployeeException("There is no employee with id=" +
-                    id + " in database");
-        } else service.deleteEmployee(id);
+        return operations.deleteEmployee(id);
+    }
+
+    // Массовое удаление для задач очистки: DELETE/api/employees?ids=1,2,3 удаляет всех
+    // перечисленных работников одним запросом и возвращает количество удаленных строк.
+    @DeleteMapping(value = "/employees", params = "ids")
+    public String deleteEmployees(@RequestParam List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Parameter ids must contain from 1 to " + MAX_PAGE_SIZE + " ids");
+        }
+        int deleted = service.deleteEmployees(ids);
 
-        return "Employee with ID="+id+" was deleted.";
+        return deleted + " of " + ids.size() + " employees were deleted.";
     }
 
 }
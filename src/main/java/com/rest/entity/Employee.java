@@ -1,12 +1,25 @@
 package com.rest.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
 import javax.persistence.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 @Table(name = "employees")
 public class Employee {
+    // IDENTITY не дает Hibernate объединять INSERT-ы в JDBC batch, так как id становится
+    // известен только после выполнения каждого запроса. Поэтому id выдаются из таблицы
+    // id_generator блоками по allocationSize штук (pooled optimizer), строка 'employees'
+    // в ней должна начинаться со значения больше текущего max(id) таблицы employees.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "employee_id")
+    @TableGenerator(name = "employee_id", table = "id_generator", pkColumnName = "name",
+            valueColumnName = "next_value", pkColumnValue = "employees", allocationSize = 50)
     @Column
     private int id;
     @Column
@@ -17,6 +30,11 @@ public class Employee {
     private String department;
     @Column
     private int salary;
+    // Номер версии строки, Hibernate увеличивает его при каждом UPDATE. По нему строятся
+    // ETag-и ответов и проверяется, что обновление не затирает чужие изменения.
+    @Version
+    @Column
+    private int version;
 
     public Employee() {
     }
@@ -68,4 +86,12 @@ public class Employee {
     public void setSalary(int salary) {
         this.salary = salary;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -1,16 +1,46 @@
 package com.rest.service.DAO;
 
 import com.rest.entity.Employee;
+import com.rest.service.dto.DepartmentSalaryCount;
+import com.rest.service.dto.SalaryRecord;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public interface EmployeeDAO {
     public List<Employee> getAllEmployees();
 
+    public List<Employee> getEmployeesAfter(int afterId, int limit);
+
+    public List<Map<String, Object>> getEmployeeFieldsAfter(Collection<String> fields, int afterId, int limit);
+
+    public Map<String, Object> getEmployeeFields(Collection<String> fields, int id);
+
+    public void forEachEmployee(Consumer<Employee> action);
+
+    public void forEachEmployee(String department, Consumer<Employee> action);
+
+    public void forEachEmployeeId(IntConsumer action);
+
+    public List<SalaryRecord> getSalaryRecords(Collection<Integer> ids);
+
+    public List<DepartmentSalaryCount> getSalaryDistribution();
+
     public void saveEmployee(Employee employee);
 
+    public void saveAll(List<Employee> employees);
+
     public Employee getEmployee(int id);
 
+    public List<Employee> getEmployees(Collection<Integer> ids);
+
+    public int updateEmployee(int id, Map<String, Object> changes);
+
+
+    int deleteEmployee(int id);
 
-    void deleteEmployee(int id);
+    int deleteEmployees(Collection<Integer> ids);
 }
@@ -1,17 +1,52 @@
 package com.rest.service.DAO;
 
 import com.rest.entity.Employee;
+import com.rest.service.dto.DepartmentSalaryCount;
+import com.rest.service.dto.SalaryRecord;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 @Repository
 public class EmployeeDAOimpl implements EmployeeDAO {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final int MULTI_LOAD_BATCH_SIZE = 100;
+
+    private static final Set<String> UPDATABLE_FIELDS = new HashSet<>(
+            Arrays.asList("name", "surname", "department", "salary"));
+
+    private static final Set<String> SELECTABLE_FIELDS = new HashSet<>(
+            Arrays.asList("id", "name", "surname", "department", "salary", "version"));
+
     @Autowired
     private SessionFactory sessionFactory;
 
@@ -19,6 +54,105 @@ public class EmployeeDAOimpl implements EmployeeDAO {
     public List<Employee> getAllEmployees() {
         Session session = sessionFactory.getCurrentSession();
         Query<Employee> query = session.createQuery("from Employee", Employee.class);
+        query.setCacheable(true);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Employee> getEmployeesAfter(int afterId, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        Query<Employee> query = session.createQuery(
+                "from Employee e where e.id > :afterId order by e.id", Employee.class);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(limit);
+        query.setCacheable(true);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Map<String, Object>> getEmployeeFieldsAfter(Collection<String> fields, int afterId, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        Query<Tuple> query = session.createQuery(selectFields(fields) +
+                " from Employee e where e.id > :afterId order by e.id", Tuple.class);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(limit);
+        query.setCacheable(true);
+        List<Tuple> tuples = query.getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            rows.add(toRow(tuple));
+        }
+        return rows;
+    }
+
+    @Override
+    public Map<String, Object> getEmployeeFields(Collection<String> fields, int id) {
+        Session session = sessionFactory.getCurrentSession();
+        Query<Tuple> query = session.createQuery(selectFields(fields) +
+                " from Employee e where e.id = :id", Tuple.class);
+        query.setParameter("id", id);
+        Tuple tuple = query.uniqueResult();
+        return tuple == null ? null : toRow(tuple);
+    }
+
+    @Override
+    public void forEachEmployee(Consumer<Employee> action) {
+        forEachEmployee(null, action);
+    }
+
+    @Override
+    public void forEachEmployee(String department, Consumer<Employee> action) {
+        Session session = sessionFactory.getCurrentSession();
+        Query<Employee> query = session.createQuery(department == null
+                ? "from Employee e order by e.id"
+                : "from Employee e where e.department = :department order by e.id", Employee.class);
+        if (department != null) {
+            query.setParameter("department", department);
+        }
+        query.setFetchSize(STREAM_FETCH_SIZE);
+        query.setReadOnly(true);
+        CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            int count = 0;
+            while (results.next()) {
+                action.accept((Employee) results.get(0));
+                if (++count % STREAM_FETCH_SIZE == 0) {
+                    session.clear();
+                }
+            }
+        } finally {
+            session.setCacheMode(previousCacheMode);
+        }
+    }
+
+    @Override
+    public void forEachEmployeeId(IntConsumer action) {
+        Session session = sessionFactory.getCurrentSession();
+        Query<Integer> query = session.createQuery("select e.id from Employee e order by e.id", Integer.class);
+        query.setFetchSize(STREAM_FETCH_SIZE);
+        try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                action.accept(results.getInteger(0));
+            }
+        }
+    }
+
+    @Override
+    public List<SalaryRecord> getSalaryRecords(Collection<Integer> ids) {
+        Session session = sessionFactory.getCurrentSession();
+        Query<SalaryRecord> query = session.createQuery("select new com.rest.service.dto.SalaryRecord(" +
+                "e.id, e.department, e.salary) from Employee e where e.id in (:ids)", SalaryRecord.class);
+        query.setParameterList("ids", ids);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<DepartmentSalaryCount> getSalaryDistribution() {
+        Session session = sessionFactory.getCurrentSession();
+        Query<DepartmentSalaryCount> query = session.createQuery("select new com.rest.service.dto.DepartmentSalaryCount(" +
+                "e.department, e.salary, count(e)) from Employee e group by e.department, e.salary",
+                DepartmentSalaryCount.class);
         return query.getResultList();
     }
 
@@ -28,6 +162,27 @@ public class EmployeeDAOimpl implements EmployeeDAO {
         session.saveOrUpdate(employee);
     }
 
+    @Override
+    public void saveAll(List<Employee> employees) {
+        Session session = sessionFactory.getCurrentSession();
+        int batchSize = sessionFactory.getSessionFactoryOptions().getJdbcBatchSize();
+        CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            int count = 0;
+            for (Employee employee : employees) {
+                session.saveOrUpdate(employee);
+                if (++count % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            session.flush();
+        } finally {
+            session.setCacheMode(previousCacheMode);
+        }
+    }
+
     @Override
     public Employee getEmployee(int id) {
         Session session = sessionFactory.getCurrentSession();
@@ -36,8 +191,122 @@ public class EmployeeDAOimpl implements EmployeeDAO {
     }
 
     @Override
-    public void deleteEmployee(int id) {
+    public List<Employee> getEmployees(Collection<Integer> ids) {
+        Session session = sessionFactory.getCurrentSession();
+        return session.byMultipleIds(Employee.class)
+                .with(CacheMode.NORMAL)
+                .enableSessionCheck(true)
+                .enableOrderedReturn(true)
+                .withBatchSize(MULTI_LOAD_BATCH_SIZE)
+                .multiLoad(new ArrayList<>(ids));
+    }
+
+    @Override
+    public int updateEmployee(int id, Map<String, Object> changes) {
+        AbstractEntityPersister persister = employeePersister();
+        String version = persister.getVersionColumnName();
+        StringBuilder sql = new StringBuilder("update ").append(persister.getTableName())
+                .append(" set ").append(version).append(" = ").append(version).append(" + 1");
+        List<Object> parameters = new ArrayList<>(changes.size() + 1);
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (!UPDATABLE_FIELDS.contains(change.getKey())) {
+                throw new IllegalArgumentException("Field " + change.getKey() + " cannot be updated");
+            }
+            sql.append(", ").append(persister.getPropertyColumnNames(change.getKey())[0]).append(" = ?");
+            parameters.add(change.getValue());
+        }
+        sql.append(" where ").append(persister.getIdentifierColumnNames()[0]).append(" = ?");
+        parameters.add(id);
+        return executeUpdate(persister, Collections.singletonList(id), sql.toString(), parameters);
+    }
+
+    private static String selectFields(Collection<String> fields) {
+        StringBuilder hql = new StringBuilder("select e.id as id");
+        for (String field : fields) {
+            if (!SELECTABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field " + field + " cannot be selected");
+            }
+            if (!"id".equals(field)) {
+                hql.append(", e.").append(field).append(" as ").append(field);
+            }
+        }
+        return hql.toString();
+    }
+
+    private static Map<String, Object> toRow(Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            row.put(element.getAlias(), tuple.get(element));
+        }
+        return row;
+    }
+
+    @Override
+    public int deleteEmployee(int id) {
+        return deleteEmployees(Collections.singletonList(id));
+    }
+
+    @Override
+    public int deleteEmployees(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        AbstractEntityPersister persister = employeePersister();
+        StringBuilder sql = new StringBuilder("delete from ").append(persister.getTableName())
+                .append(" where ").append(persister.getIdentifierColumnNames()[0]).append(" in (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        return executeUpdate(persister, ids, sql.toString(), new ArrayList<>(ids));
+    }
+
+    private AbstractEntityPersister employeePersister() {
+        SessionFactoryImplementor factory = sessionFactory.unwrap(SessionFactoryImplementor.class);
+        return (AbstractEntityPersister) factory.getMetamodel().entityPersister(Employee.class);
+    }
+
+    // Удаление и изменение работников по id одним SQL запросом через JDBC, а не HQL delete/update.
+    // HQL DML не знает, какие строки он затронет, поэтому после коммита очищает весь регион
+    // кэша второго уровня Employee (BulkOperationCleanupAction), и каждая запись выбрасывала из
+    // кэша всех работников. Здесь id известны, и с кэшем мы поступаем так же, как Hibernate
+    // при обычном удалении сущности: до запроса ставим soft lock только на ключи этих id, чтобы
+    // параллельные чтения не положили в кэш старую строку, а после завершения транзакции
+    // снимаем его - следующее чтение загрузит работника из базы. Закэшированные запросы (списки,
+    // проекции) по-прежнему считаются устаревшими по всей таблице: какие из них затронуты
+    // изменением, заранее не известно.
+    private int executeUpdate(AbstractEntityPersister persister, Collection<Integer> ids,
+                              String sql, List<Object> parameters) {
         Session session = sessionFactory.getCurrentSession();
-        session.delete(session.get(Employee.class, id));
+        session.flush();
+        SessionImplementor source = session.unwrap(SessionImplementor.class);
+        SessionFactoryImplementor factory = source.getFactory();
+        TimestampsCache timestamps = factory.getCache().getTimestampsCache();
+        Serializable[] spaces = persister.getPropertySpaces();
+        timestamps.preInvalidate(spaces, source);
+        List<Object> keys = new ArrayList<>(ids.size());
+        List<SoftLock> locks = new ArrayList<>(ids.size());
+        EntityDataAccess cache = persister.canWriteToCache() ? persister.getCacheAccessStrategy() : null;
+        if (cache != null) {
+            for (Integer id : ids) {
+                Object key = cache.generateCacheKey(id, persister, factory, source.getTenantIdentifier());
+                keys.add(key);
+                locks.add(cache.lockItem(source, key, null));
+            }
+        }
+        source.getActionQueue().registerProcess((success, completed) -> {
+            for (int i = 0; i < keys.size(); i++) {
+                cache.unlockItem(completed, keys.get(i), locks.get(i));
+            }
+            timestamps.invalidate(spaces, completed);
+        });
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                return statement.executeUpdate();
+            }
+        });
     }
 }
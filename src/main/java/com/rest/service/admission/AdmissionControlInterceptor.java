@@ -0,0 +1,136 @@
+package com.rest.service.admission;
+
+import com.rest.service.metrics.MetricsRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Admission control перед API работников. Каждый запрос должен получить два разрешения:
+// у ограничителя своего маршрута (шаблон URL + HTTP метод) и у общего бюджета чтения или
+// записи. Бюджеты раздельные, поэтому поток GET запросов не может занять все места и оставить
+// без них POST/PUT/PATCH/DELETE. POST .../lookup только читает и считается чтением.
+// Массовые маршруты (выгрузка, импорт, пакетная запись и GET ?stream=true) идут минутами,
+// поэтому берут разрешение не у бюджетов чтения и записи, а у своего статического бюджета
+// bulk: иначе одна долгая выгрузка считалась бы медленным ответом и урезала адаптивный
+// предел для обычных запросов.
+// Если разрешения нет, запрос не ждет, а сразу получает 503.
+// Разрешения держатся до конца запроса, для асинхронных обработчиков - до конца
+// асинхронной обработки: preHandle при повторной диспетчеризации ничего не берет заново.
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ADMITTED = AdmissionControlInterceptor.class.getName() + ".ADMITTED";
+
+    private static final String LOOKUP_SUFFIX = "/lookup";
+
+    private static final String STREAM_PARAMETER = "stream";
+
+    private final class Admission {
+        final ConcurrencyLimiter route;
+        final ConcurrencyLimiter budget;
+        final long start = System.nanoTime();
+
+        Admission(ConcurrencyLimiter route, ConcurrencyLimiter budget) {
+            this.route = route;
+            this.budget = budget;
+        }
+    }
+
+    private final MetricsRegistry registry;
+    private final ConcurrencyLimiter readBudget;
+    private final ConcurrencyLimiter writeBudget;
+    private final ConcurrencyLimiter bulkBudget;
+    private final Set<String> bulkPatterns;
+    private final int routeLimit;
+    private final int retryAfterSeconds;
+    private final Map<String, ConcurrencyLimiter> routes = new ConcurrentHashMap<>();
+
+    // bulkPatterns - шаблоны URL массовых маршрутов, GET с stream=true считается массовым всегда
+    public AdmissionControlInterceptor(MetricsRegistry registry, ConcurrencyLimiter readBudget,
+                                       ConcurrencyLimiter writeBudget, ConcurrencyLimiter bulkBudget,
+                                       Collection<String> bulkPatterns, int routeLimit, int retryAfterSeconds) {
+        this.registry = registry;
+        this.readBudget = register(readBudget, "budget");
+        this.writeBudget = register(writeBudget, "budget");
+        this.bulkBudget = register(bulkBudget, "budget");
+        this.bulkPatterns = new HashSet<>(bulkPatterns);
+        this.routeLimit = routeLimit;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(ADMITTED) != null) {
+            return true;
+        }
+        ConcurrencyLimiter route = route(request);
+        if (!route.tryAcquire()) {
+            throw new AdmissionRejectedException("Too many concurrent requests to " + route.getName(),
+                    retryAfterSeconds);
+        }
+        ConcurrencyLimiter budget = isBulk(request) ? bulkBudget : isRead(request) ? readBudget : writeBudget;
+        if (!budget.tryAcquire()) {
+            route.release(-1, false);
+            throw new AdmissionRejectedException("Too many concurrent " + budget.getName() + " requests",
+                    retryAfterSeconds);
+        }
+        request.setAttribute(ADMITTED, new Admission(route, budget));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.isAsyncStarted()) {
+            return;
+        }
+        Admission admission = (Admission) request.getAttribute(ADMITTED);
+        if (admission == null) {
+            return;
+        }
+        request.removeAttribute(ADMITTED);
+        long nanos = System.nanoTime() - admission.start;
+        boolean failed = ex != null || response.getStatus() >= 500;
+        admission.budget.release(nanos, failed);
+        admission.route.release(nanos, failed);
+    }
+
+    private ConcurrencyLimiter route(HttpServletRequest request) {
+        String route = request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        ConcurrencyLimiter limiter = routes.get(route);
+        if (limiter == null) {
+            limiter = routes.computeIfAbsent(route, key -> register(new ConcurrencyLimiter(key, routeLimit), "route"));
+        }
+        return limiter;
+    }
+
+    private boolean isBulk(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return bulkPatterns.contains(String.valueOf(pattern))
+                || "true".equals(request.getParameter(STREAM_PARAMETER));
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        if (method == HttpMethod.POST) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return pattern != null && pattern.toString().endsWith(LOOKUP_SUFFIX);
+        }
+        return method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS;
+    }
+
+    private ConcurrencyLimiter register(ConcurrencyLimiter limiter, String scope) {
+        String[] labels = {"scope", scope, "name", limiter.getName()};
+        registry.gauge("admission_limit", "Current concurrency limit", limiter::getLimit, labels);
+        registry.gauge("admission_in_flight", "Requests currently admitted", limiter::getInFlight, labels);
+        registry.counter("admission_rejected_total", "Requests rejected with 503", limiter.getRejections(), labels);
+        return limiter;
+    }
+}
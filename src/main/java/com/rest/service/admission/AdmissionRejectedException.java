@@ -0,0 +1,20 @@
+package com.rest.service.admission;
+
+import java.util.concurrent.RejectedExecutionException;
+
+// Запрос не допущен до обработки, потому что маршрут или бюджет чтения/записи исчерпан.
+// Наследуется от RejectedExecutionException, поэтому глобальный обработчик исключений
+// превращает его в 503, а retryAfterSeconds попадает в заголовок Retry-After.
+public class AdmissionRejectedException extends RejectedExecutionException {
+
+    private final int retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
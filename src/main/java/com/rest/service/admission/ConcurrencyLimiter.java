@@ -0,0 +1,87 @@
+package com.rest.service.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Ограничитель одновременных запросов. Запрос либо сразу получает разрешение, либо сразу
+// получает отказ, ожидания в очереди нет. Статический ограничитель держит предел maxLimit.
+// Адаптивный меняет предел по AIMD: каждый быстрый ответ при заметной загрузке добавляет
+// 1/limit (примерно +1 за каждое "окно" из limit запросов), а ответ медленнее targetLatency
+// или ошибка сервера умножает предел на BACKOFF. Предел держится между minLimit и maxLimit.
+public class ConcurrencyLimiter {
+
+    private static final double BACKOFF = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final boolean adaptive;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+
+    public ConcurrencyLimiter(String name, int maxLimit) {
+        this(name, maxLimit, maxLimit, 0, false);
+    }
+
+    public ConcurrencyLimiter(String name, int minLimit, int maxLimit, long targetLatencyMs, boolean adaptive) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limiter " + name + " needs 1 <= minLimit <= maxLimit");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.adaptive = adaptive;
+        this.limit = maxLimit;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Освобождает разрешение. Без замера (nanos < 0) предел не меняется, так освобождаются
+    // разрешения запросов, отклоненных следующим ограничителем.
+    public void release(long nanos, boolean failed) {
+        int current = inFlight.getAndDecrement();
+        if (adaptive && nanos >= 0) {
+            adjust(current, nanos, failed);
+        }
+    }
+
+    private synchronized void adjust(int inFlightAtRelease, long nanos, boolean failed) {
+        double current = limit;
+        if (failed || nanos > targetLatencyNanos) {
+            limit = Math.max(minLimit, current * BACKOFF);
+        } else if (inFlightAtRelease * 2 >= current) {
+            limit = Math.min(maxLimit, current + 1 / current);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public LongAdder getRejections() {
+        return rejected;
+    }
+}
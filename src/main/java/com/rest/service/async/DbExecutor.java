@@ -0,0 +1,207 @@
+package com.rest.service.async;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Исполнитель для работы с базой из асинхронных обработчиков. Одновременно выполняется не больше
+// maxConcurrency задач (столько же, сколько подключений в пуле), еще не больше queueCapacity
+// задач ждут своей очереди. Когда очередь полна, задача сразу отклоняется TaskRejectedException,
+// а задача, прождавшая в очереди дольше queueTimeout, завершается с тем же исключением, не
+// трогая базу: клиент к этому времени, скорее всего, уже не ждет ответа.
+// На Java 21 и новее можно включить виртуальные потоки: каждая задача получает свой виртуальный
+// поток, а ограничение одновременных задач держит семафор. На более старой Java исполнитель
+// молча остается на обычном пуле потоков, isVirtual() показывает, что выбрано на самом деле.
+public class DbExecutor implements AsyncTaskExecutor, DisposableBean {
+
+    private final int maxConcurrency;
+    private final long queueTimeoutNanos;
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    public DbExecutor(int maxConcurrency, int queueCapacity, long queueTimeoutMs, boolean useVirtualThreads) {
+        this("db-executor-", maxConcurrency, queueCapacity, queueTimeoutMs, useVirtualThreads);
+    }
+
+    public DbExecutor(String threadNamePrefix, int maxConcurrency, int queueCapacity, long queueTimeoutMs,
+                      boolean useVirtualThreads) {
+        this.maxConcurrency = maxConcurrency;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        this.admitted = new Semaphore(maxConcurrency + queueCapacity);
+        ExecutorService virtualExecutor = useVirtualThreads ? newVirtualThreadExecutor(threadNamePrefix) : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.running = new Semaphore(maxConcurrency);
+            this.virtual = true;
+        } else {
+            this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), platformThreadFactory(threadNamePrefix));
+            this.running = null;
+            this.virtual = false;
+        }
+    }
+
+    // Запускает supplier в исполнителе и возвращает CompletableFuture с его результатом.
+    // Переполнение очереди выбрасывает TaskRejectedException сразу, в вызывающем потоке.
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, future);
+        return future;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(task, null);
+    }
+
+    @Override
+    @Deprecated
+    public void execute(Runnable task, long startTimeout) {
+        execute(task);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return supply(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return supply(() -> {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void execute(Runnable task, CompletableFuture<?> future) {
+        if (!admitted.tryAcquire()) {
+            throw new TaskRejectedException("Database executor queue is full");
+        }
+        long enqueued = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> run(task, future, enqueued));
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            admitted.release();
+            throw new TaskRejectedException("Database executor is shut down", e);
+        }
+    }
+
+    private void run(Runnable task, CompletableFuture<?> future, long enqueued) {
+        boolean acquired = false;
+        try {
+            try {
+                if (running != null) {
+                    running.acquire();
+                    acquired = true;
+                }
+            } finally {
+                queued.decrementAndGet();
+            }
+            if (System.nanoTime() - enqueued > queueTimeoutNanos) {
+                TaskRejectedException timeout = new TaskRejectedException("Task waited in database executor queue "
+                        + "for more than " + TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos) + " ms");
+                if (future == null) {
+                    throw timeout;
+                }
+                future.completeExceptionally(timeout);
+                return;
+            }
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (future != null) {
+                future.completeExceptionally(e);
+            }
+        } finally {
+            if (acquired) {
+                running.release();
+            }
+            admitted.release();
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private static ThreadFactory platformThreadFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 1).factory()),
+    // вызванный через reflection, потому что проект компилируется под Java 8.
+    private static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
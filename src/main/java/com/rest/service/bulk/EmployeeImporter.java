@@ -0,0 +1,188 @@
+package com.rest.service.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.rest.entity.Employee;
+import com.rest.service.dto.ImportError;
+import com.rest.service.dto.ImportResult;
+import com.rest.service.services.EmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Импорт работников из NDJSON или CSV. Вход читается построчно, разобранные работники
+// собираются в порции по employee.batch.chunk.size штук, и каждая порция сохраняется
+// через EmployeeService.saveAll в своей транзакции с JDBC batching. В памяти одновременно
+// находится только одна порция, поэтому размер файла не ограничен.
+// Строка с ошибкой разбора пропускается, порция с ошибкой сохранения откатывается целиком,
+// в обоих случаях импорт продолжается, а ошибка попадает в итог.
+@Component
+public class EmployeeImporter {
+
+    private static final String[] REQUIRED_COLUMNS = {"name", "surname", "department", "salary"};
+
+    @Autowired
+    private EmployeeService service;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${employee.batch.chunk.size}")
+    private int chunkSize;
+
+    @Value("${employee.import.maxReportedErrors}")
+    private int maxReportedErrors;
+
+    private final class Import {
+        final long start = System.nanoTime();
+        final ImportResult result = new ImportResult();
+        List<Employee> chunk = new ArrayList<>(chunkSize);
+        long chunkFirstLine;
+
+        void add(long line, Employee employee) {
+            if (chunk.isEmpty()) {
+                chunkFirstLine = line;
+            }
+            chunk.add(employee);
+            result.setRecords(result.getRecords() + 1);
+            if (chunk.size() == chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(long line, String message) {
+            result.setRecords(result.getRecords() + 1);
+            result.setFailed(result.getFailed() + 1);
+            error(line, message);
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                service.saveAll(chunk);
+                result.setImported(result.getImported() + chunk.size());
+            } catch (RuntimeException e) {
+                result.setFailed(result.getFailed() + chunk.size());
+                error(chunkFirstLine, "Chunk of " + chunk.size() + " records was not saved: " + rootMessage(e));
+            }
+            chunk = new ArrayList<>(chunkSize);
+        }
+
+        void error(long line, String message) {
+            if (result.getErrors().size() < maxReportedErrors) {
+                result.getErrors().add(new ImportError(line, message));
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+
+        ImportResult finish() {
+            flush();
+            result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+            return result;
+        }
+    }
+
+    public ImportResult importNdjson(Reader input) throws IOException {
+        ObjectReader employeeReader = objectMapper.readerFor(Employee.class)
+                .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        Import state = new Import();
+        BufferedReader lines = new BufferedReader(input, 64 * 1024);
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                state.add(lineNumber, employeeReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                state.reject(lineNumber, e.getOriginalMessage());
+            }
+        }
+        return state.finish();
+    }
+
+    // Первая запись CSV - заголовок. Колонки name, surname, department и salary обязательны,
+    // id и version - нет, остальные колонки игнорируются. Запись с id изменяет существующего
+    // работника, и для нее нужна version - текущая версия строки, как в выгрузке
+    // GET/api/employees/export: без нее версия считается нулевой, и изменение уже менявшегося
+    // работника откатит всю порцию как конфликт версий.
+    public ImportResult importCsv(Reader input) throws IOException {
+        CsvReader csv = new CsvReader(input);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim().toLowerCase();
+            if (i == 0 && column.startsWith("\uFEFF")) {
+                column = column.substring(1);
+            }
+            columns.put(column, i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("CSV header must contain column " + column);
+            }
+        }
+        int id = columns.getOrDefault("id", -1);
+        int version = columns.getOrDefault("version", -1);
+        int name = columns.get("name");
+        int surname = columns.get("surname");
+        int department = columns.get("department");
+        int salary = columns.get("salary");
+
+        Import state = new Import();
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue;
+            }
+            if (record.size() != header.size()) {
+                state.reject(csv.getRecordLine(), "Expected " + header.size() + " fields but found " + record.size());
+                continue;
+            }
+            Employee employee = new Employee();
+            try {
+                if (id >= 0 && !record.get(id).isEmpty()) {
+                    employee.setId(Integer.parseInt(record.get(id).trim()));
+                }
+                if (version >= 0 && !record.get(version).isEmpty()) {
+                    employee.setVersion(Integer.parseInt(record.get(version).trim()));
+                }
+                employee.setSalary(Integer.parseInt(record.get(salary).trim()));
+            } catch (NumberFormatException e) {
+                state.reject(csv.getRecordLine(), "id, version and salary must be integers: " + e.getMessage());
+                continue;
+            }
+            employee.setName(record.get(name));
+            employee.setSurname(record.get(surname));
+            employee.setDepartment(record.get(department));
+            state.add(csv.getRecordLine(), employee);
+        }
+        return state.finish();
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.rest.service.cache;
+
+import com.rest.service.dto.CacheRegionStats;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Счетчики кэша читаются из стандартных MBean-ов JCache (CacheStatisticsMXBean), поэтому
+// класс не привязан к конкретному провайдеру кэша. Провайдер должен публиковать статистику,
+// для Ehcache это включено в ehcache.xml.
+@Component
+public class CacheStatistics {
+
+    private static final String STATISTICS_QUERY = "javax.cache:type=CacheStatistics,*";
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    public List<CacheRegionStats> getRegionStats() {
+        List<CacheRegionStats> result = new ArrayList<>();
+        try {
+            for (ObjectName name : mBeanServer.queryNames(new ObjectName(STATISTICS_QUERY), null)) {
+                CacheRegionStats stats = new CacheRegionStats();
+                stats.setRegion(name.getKeyProperty("Cache"));
+                stats.setHits(getLong(name, "CacheHits"));
+                stats.setMisses(getLong(name, "CacheMisses"));
+                stats.setPuts(getLong(name, "CachePuts"));
+                stats.setRemovals(getLong(name, "CacheRemovals"));
+                stats.setEvictions(getLong(name, "CacheEvictions"));
+                stats.setHitPercentage((Float) mBeanServer.getAttribute(name, "CacheHitPercentage"));
+                result.add(stats);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot read cache statistics", e);
+        }
+        result.sort(Comparator.comparing(CacheRegionStats::getRegion));
+        return result;
+    }
+
+    private long getLong(ObjectName name, String attribute) throws JMException {
+        return (Long) mBeanServer.getAttribute(name, attribute);
+    }
+}
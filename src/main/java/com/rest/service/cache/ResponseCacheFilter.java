@@ -0,0 +1,306 @@
+package com.rest.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.rest.service.events.EmployeeChangedEvent;
+import com.rest.service.metrics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+// Кэш готовых ответов перед MyRestController для GET/api/employees (со всеми параметрами
+// страниц, fields и ids) и GET/api/employees/{id}. Хранится тело ответа в байтах, уже
+// сериализованное нужным конвертером, и для больших тел сразу сжатая gzip копия. Ключ -
+// путь с параметрами и заголовок Accept, поэтому json, Smile и CBOR хранятся отдельно.
+// При попадании контроллер, Hibernate и Jackson не вызываются: фильтр выставляет сохраненные
+// заголовки и пишет массив байт прямо в выходной поток, отвечает 304 на совпавший
+// If-None-Match. Кэш ограничен суммарным размером в байтах, вытеснение - W-TinyLFU (Caffeine).
+// После коммита изменения работника удаляются ответы по его id и все ответы со списками.
+// Чтобы ответ, прочитанный до изменения, не попал в кэш после удаления, у каждой группы
+// (работник по id или списки) есть номер поколения: изменение увеличивает его, а ответ
+// сохраняется, только если поколение с начала запроса не изменилось.
+// Поколения не спасают от реплики: ответ, прочитанный с отстающей реплики уже после
+// изменения, сохранится со старыми данными. Поэтому каждый ответ живет не дольше
+// response.cache.ttlMs, после этого он вытесняется и читается заново. Изменения, сделанные
+// мимо сервиса этого экземпляра, тоже видны не позже чем через это время.
+@Component("responseCacheFilter")
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final String LIST_PATH = "/api/employees";
+    private static final String ITEM_PREFIX = LIST_PATH + "/";
+    private static final int LIST_GROUP = -1;
+    private static final int GENERATION_STRIPES = 1024;
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private static final class Key {
+        final int group;
+        final String variant;
+        final int hash;
+
+        Key(int group, String variant) {
+            this.group = group;
+            this.variant = variant;
+            this.hash = 31 * group + variant.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return group == key.group && variant.equals(key.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class CachedResponse {
+        final String route;
+        final String contentType;
+        final String eTag;
+        final String vary;
+        final byte[] body;
+        final byte[] gzipBody;
+
+        CachedResponse(String route, String contentType, String eTag, String vary, byte[] body, byte[] gzipBody) {
+            this.route = route;
+            this.contentType = contentType;
+            this.eTag = eTag;
+            this.vary = vary;
+            this.body = body;
+            this.gzipBody = gzipBody;
+        }
+
+        int weight(Key key) {
+            return ENTRY_OVERHEAD_BYTES + 2 * key.variant.length() + body.length
+                    + (gzipBody == null ? 0 : gzipBody.length);
+        }
+    }
+
+    @Autowired
+    private MetricsRegistry registry;
+
+    @Value("${response.cache.enabled}")
+    private boolean enabled;
+
+    @Value("${response.cache.maxBytes}")
+    private long maxBytes;
+
+    @Value("${response.cache.maxEntryBytes}")
+    private int maxEntryBytes;
+
+    @Value("${response.cache.gzipMinBytes}")
+    private int gzipMinBytes;
+
+    @Value("${response.cache.ttlMs}")
+    private long ttlMs;
+
+    private Cache<Key, CachedResponse> cache;
+    private final Map<Integer, Set<Key>> groups = new ConcurrentHashMap<>();
+    private final AtomicLongArray itemGenerations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong listGeneration = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, CachedResponse response) -> response.weight(key))
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .removalListener((Key key, CachedResponse response, RemovalCause cause) -> {
+                    if (key != null && cause.wasEvicted()) {
+                        Set<Key> keys = groups.get(key.group);
+                        if (keys != null) {
+                            keys.remove(key);
+                        }
+                    }
+                })
+                .build();
+        registry.counter("response_cache_requests_total", "Cacheable requests answered from the response cache",
+                hits, "result", "hit");
+        registry.counter("response_cache_requests_total", "Cacheable requests answered from the response cache",
+                misses, "result", "miss");
+        registry.counter("response_cache_stores_total", "Responses stored in the response cache", stores);
+        registry.gauge("response_cache_entries", "Responses in the response cache", cache::estimatedSize);
+        registry.gauge("response_cache_bytes", "Estimated bytes held by the response cache",
+                () -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        registry.gauge("response_cache_max_bytes", "Response cache capacity in bytes", () -> maxBytes);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"GET".equals(request.getMethod()) || group(request) == null
+                || request.getParameter("stream") != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        int group = group(request);
+        Key key = new Key(group, variant(request));
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            write(cached, request, response);
+            return;
+        }
+        misses.increment();
+        long generation = generation(group);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, wrapper);
+            if (!request.isAsyncStarted()) {
+                store(key, generation, request, wrapper);
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        itemGenerations.incrementAndGet(stripe(event.getId()));
+        listGeneration.incrementAndGet();
+        invalidate(event.getId());
+        invalidate(LIST_GROUP);
+    }
+
+    private void store(Key key, long generation, HttpServletRequest request, ContentCachingResponseWrapper wrapper)
+            throws IOException {
+        int size = wrapper.getContentSize();
+        String contentType = wrapper.getContentType();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || size == 0 || size > maxEntryBytes
+                || contentType == null || wrapper.containsHeader(HttpHeaders.CONTENT_ENCODING)
+                || wrapper.containsHeader(HttpHeaders.SET_COOKIE)) {
+            return;
+        }
+        byte[] body = wrapper.getContentAsByteArray();
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        CachedResponse response = new CachedResponse(route == null ? null : route.toString(), contentType,
+                wrapper.getHeader(HttpHeaders.ETAG), wrapper.getHeader(HttpHeaders.VARY), body,
+                body.length >= gzipMinBytes ? gzip(body) : null);
+        if (generation(key.group) != generation) {
+            return;
+        }
+        cache.put(key, response);
+        groups.computeIfAbsent(key.group, group -> ConcurrentHashMap.newKeySet()).add(key);
+        if (generation(key.group) != generation) {
+            cache.invalidate(key);
+            return;
+        }
+        stores.increment();
+    }
+
+    private void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (cached.route != null) {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, cached.route);
+        }
+        if (cached.vary != null) {
+            response.setHeader(HttpHeaders.VARY, cached.vary);
+        }
+        if (cached.gzipBody != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (cached.eTag != null) {
+            response.setHeader(HttpHeaders.ETAG, cached.eTag);
+            String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+            if (ifNoneMatch != null && ifNoneMatch.contains(cached.eTag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        byte[] body = cached.body;
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (cached.gzipBody != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = cached.gzipBody;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void invalidate(int group) {
+        Set<Key> keys = groups.remove(group);
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private long generation(int group) {
+        return group == LIST_GROUP ? listGeneration.get() : itemGenerations.get(stripe(group));
+    }
+
+    // Группа ответа: id работника для /api/employees/{id}, LIST_GROUP для списков и null,
+    // если путь не кэшируется
+    private static Integer group(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.equals(LIST_PATH)) {
+            return LIST_GROUP;
+        }
+        if (!path.startsWith(ITEM_PREFIX) || path.length() == ITEM_PREFIX.length()
+                || path.length() > ITEM_PREFIX.length() + 9) {
+            return null;
+        }
+        int id = 0;
+        for (int i = ITEM_PREFIX.length(); i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    private static String variant(HttpServletRequest request) {
+        String query = request.getQueryString();
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return (query == null ? "" : query) + '|' + (accept == null ? "" : accept);
+    }
+
+    private static int stripe(int id) {
+        return id & (GENERATION_STRIPES - 1);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.size() < body.length ? out.toByteArray() : null;
+    }
+}
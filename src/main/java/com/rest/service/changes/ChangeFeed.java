@@ -0,0 +1,333 @@
+package com.rest.service.changes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rest.service.dto.EmployeeChange;
+import com.rest.service.events.EmployeeChangedEvent;
+import com.rest.service.metrics.MetricsRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Лента изменений работников для GET/api/employees/changes (Server-Sent Events). Каждое
+// закоммиченное изменение получает следующий номер и сразу сериализуется в json, последние
+// changes.feed.bufferSize изменений хранятся в кольцевом буфере. id события SSE - "эпоха:номер",
+// где эпоха - время запуска приложения, поэтому переподключившийся клиент присылает
+// Last-Event-ID и получает все изменения после него из буфера. Номера начинаются заново после
+// перезапуска, и без эпохи номер из прошлого запуска совпал бы с чужим изменением. Если нужных
+// изменений в буфере уже нет или эпоха не та, клиент получает событие reset с id текущего
+// номера и соединение закрывается: клиент перечитывает список целиком и продолжает с этого id.
+// Подписчики не занимают потоков: SseEmitter держит асинхронный запрос. Поток
+// changes-feed-broadcaster просыпается на каждое новое изменение и раз в
+// changes.feed.heartbeatMs, но сам в сокеты не пишет: он только ставит подписчиков, которым
+// есть что отправить, в очередь пула changes.feed.writerThreads потоков. Поток пула досылает
+// подписчику все события после последнего отправленного ему номера (или heartbeat, чтобы найти
+// закрытые соединения). Очередь подписчика - его позиция в кольцевом буфере, поэтому она
+// ограничена bufferSize: отставший больше чем на буфер получает reset. Запись в сокет
+// блокирующая, и медленный клиент задерживает только поток, который пишет ему. Если запись
+// длится дольше changes.feed.writeTimeoutMs, подписчик отключается: остальные события ему
+// не пишутся, а его асинхронный запрос сразу завершается через AsyncContext. Контейнер
+// закрывает ответ, зависшая запись завершается ошибкой и освобождает поток пула. Клиент
+// переподключится и продолжит с Last-Event-ID.
+@Component
+public class ChangeFeed implements DisposableBean {
+
+    // lastSent подписчика, чей Last-Event-ID из другого запуска: ему сразу отправляется reset
+    private static final long LOST = -1;
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final HttpServletRequest request;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile long lastSent;
+        // System.nanoTime() начала текущей записи в сокет, 0 - запись не идет
+        volatile long writeStarted;
+        volatile boolean heartbeat;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, HttpServletRequest request, long lastSent) {
+            this.emitter = emitter;
+            this.request = request;
+            this.lastSent = lastSent;
+        }
+    }
+
+    private static final class Entry {
+        final long sequence;
+        final String type;
+        final String json;
+
+        Entry(long sequence, String type, String json) {
+            this.sequence = sequence;
+            this.type = type;
+            this.json = json;
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MetricsRegistry registry;
+
+    @Value("${changes.feed.bufferSize}")
+    private int bufferSize;
+
+    @Value("${changes.feed.maxSubscribers}")
+    private int maxSubscribers;
+
+    @Value("${changes.feed.heartbeatMs}")
+    private long heartbeatMs;
+
+    @Value("${changes.feed.timeoutMs}")
+    private long timeoutMs;
+
+    @Value("${changes.feed.writerThreads}")
+    private int writerThreads;
+
+    @Value("${changes.feed.writeTimeoutMs}")
+    private long writeTimeoutMs;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private AtomicReferenceArray<Entry> ring;
+    private volatile long lastSequence;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeups = new Semaphore(0);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder resets = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running = true;
+    private Thread broadcaster;
+    private ExecutorService writers;
+
+    @PostConstruct
+    public void init() {
+        ring = new AtomicReferenceArray<>(bufferSize);
+        registry.gauge("changes_feed_subscribers", "Clients connected to the change feed", subscribers::size);
+        registry.gauge("changes_feed_sequence", "Sequence number of the last change", () -> lastSequence);
+        registry.counter("changes_feed_events_sent_total", "Change events sent to subscribers", sent);
+        registry.counter("changes_feed_resets_total", "Subscribers told to reload because their position was lost",
+                resets);
+        registry.counter("changes_feed_dropped_total",
+                "Subscribers disconnected because a write to them took longer than the write timeout", dropped);
+        AtomicInteger writerNumber = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "changes-feed-writer-" + writerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        broadcaster = new Thread(this::broadcast, "changes-feed-broadcaster");
+        broadcaster.setDaemon(true);
+        broadcaster.start();
+    }
+
+    @TransactionalEventListener
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        synchronized (this) {
+            long sequence = lastSequence + 1;
+            EmployeeChange change = new EmployeeChange(sequence, event.getType().name(), event.getId(),
+                    event.getEmployee(), event.getChanges());
+            try {
+                ring.set((int) (sequence % bufferSize),
+                        new Entry(sequence, event.getType().name(), objectMapper.writeValueAsString(change)));
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+            lastSequence = sequence;
+        }
+        wakeups.release();
+    }
+
+    // Подписывает клиента на изменения после lastEventId, без него - на изменения после
+    // текущего номера. request - запрос подписки, через него отключается зависший подписчик.
+    public SseEmitter subscribe(String lastEventId, HttpServletRequest request) {
+        long from = lastEventId == null ? lastSequence : parseEventId(lastEventId.trim());
+        if (subscribers.size() >= maxSubscribers) {
+            throw new RejectedExecutionException("Too many change feed subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, request, from);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
+        subscribers.add(subscriber);
+        wakeups.release();
+        return emitter;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        broadcaster.interrupt();
+        writers.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    // Номер изменения из id события "эпоха:номер". Для id из другого запуска (в том числе
+    // старого вида без эпохи) - LOST.
+    private long parseEventId(String eventId) {
+        int colon = eventId.indexOf(':');
+        long sequence;
+        try {
+            sequence = Long.parseLong(eventId.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            sequence = -1;
+        }
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Last-Event-ID must be an id of a change feed event");
+        }
+        return colon > 0 && eventId.substring(0, colon).equals(epoch) ? sequence : LOST;
+    }
+
+    private String eventId(long sequence) {
+        return epoch + ":" + sequence;
+    }
+
+    private void broadcast() {
+        long lastHeartbeat = System.nanoTime();
+        long writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        while (running) {
+            try {
+                wakeups.tryAcquire(Math.min(heartbeatMs, writeTimeoutMs), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            wakeups.drainPermits();
+            long head = lastSequence;
+            long now = System.nanoTime();
+            boolean heartbeat = now - lastHeartbeat >= TimeUnit.MILLISECONDS.toNanos(heartbeatMs);
+            for (Subscriber subscriber : subscribers) {
+                long writeStarted = subscriber.writeStarted;
+                if (writeStarted != 0 && now - writeStarted > writeTimeoutNanos) {
+                    dropped.increment();
+                    close(subscriber);
+                    abort(subscriber);
+                    continue;
+                }
+                if (heartbeat) {
+                    subscriber.heartbeat = true;
+                }
+                if (subscriber.lastSent != head || subscriber.heartbeat) {
+                    schedule(subscriber);
+                }
+            }
+            if (heartbeat) {
+                lastHeartbeat = now;
+            }
+        }
+    }
+
+    // Одновременно подписчику пишет не больше одного потока: пока его задача в очереди или
+    // выполняется, scheduled = true, и новые изменения она заберет сама.
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                writers.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            do {
+                if (subscriber.closed) {
+                    subscriber.emitter.complete();
+                    return;
+                }
+                long head = lastSequence;
+                if (subscriber.lastSent != head) {
+                    deliver(subscriber, head);
+                    subscriber.heartbeat = false;
+                } else if (subscriber.heartbeat) {
+                    subscriber.heartbeat = false;
+                    send(subscriber, SseEmitter.event().comment("heartbeat"));
+                }
+                subscriber.scheduled.set(false);
+            } while ((subscriber.closed || subscriber.lastSent != lastSequence)
+                    && subscriber.scheduled.compareAndSet(false, true));
+        } catch (IOException | RuntimeException e) {
+            close(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void deliver(Subscriber subscriber, long head) throws IOException {
+        if (subscriber.lastSent == LOST || subscriber.lastSent > head || head - subscriber.lastSent > bufferSize) {
+            reset(subscriber, head);
+            return;
+        }
+        while (subscriber.lastSent < head && !subscriber.closed) {
+            long sequence = subscriber.lastSent + 1;
+            Entry entry = ring.get((int) (sequence % bufferSize));
+            if (entry == null || entry.sequence != sequence) {
+                reset(subscriber, head);
+                return;
+            }
+            send(subscriber, SseEmitter.event().id(eventId(sequence)).name(entry.type).data(entry.json));
+            subscriber.lastSent = sequence;
+            sent.increment();
+        }
+    }
+
+    // После reset подписчик закрыт, соединение завершает drain
+    private void reset(Subscriber subscriber, long head) throws IOException {
+        resets.increment();
+        close(subscriber);
+        send(subscriber, SseEmitter.event().id(eventId(head)).name("reset").data(""));
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.writeStarted = System.nanoTime() | 1;
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.writeStarted = 0;
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    // Завершает асинхронный запрос подписчика, чья запись зависла. emitter.complete() здесь не
+    // подходит: send и complete синхронизированы по emitter, и broadcaster ждал бы ту же запись.
+    // AsyncContext.complete() можно вызывать из любого потока, контейнер закрывает ответ, и
+    // заблокированный send получает IOException. Если запрос уже завершился сам, делать нечего.
+    private static void abort(Subscriber subscriber) {
+        try {
+            if (subscriber.request.isAsyncStarted()) {
+                subscriber.request.getAsyncContext().complete();
+            }
+        } catch (IllegalStateException e) {
+            return;
+        }
+    }
+}
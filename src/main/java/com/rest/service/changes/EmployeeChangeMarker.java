@@ -0,0 +1,53 @@
+package com.rest.service.changes;
+
+import com.rest.service.events.EmployeeChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Маркер изменений таблицы для ETag списков работников. Раньше он считался запросом
+// count/max/sum(version) по всей таблице на каждый GET, теперь это счетчик в памяти,
+// который увеличивается после коммита каждого изменения через сервис. Время запуска в
+// маркере не дает ETag одного запуска совпасть с ETag другого после перезапуска.
+// Списки читаются с реплики, которая может отставать от основной базы. Чтобы клиент не
+// получил новый ETag вместе со старыми данными и не закэшировал их до следующего
+// изменения, первые db.replica.maxLagMs после изменения маркер не выдается (null - ETag
+// не ставится и 304 не бывает). Без реплики маркер доступен сразу.
+// Изменения, сделанные мимо сервиса этого экземпляра приложения, маркер не видит.
+@Component
+public class EmployeeChangeMarker {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private final long replicaLagNanos;
+    private volatile long lastChangeNanos;
+
+    public EmployeeChangeMarker(@Value("${db.replica.url}") String replicaUrl,
+                                @Value("${db.replica.maxLagMs}") long replicaMaxLagMs) {
+        replicaLagNanos = StringUtils.hasText(replicaUrl) ? TimeUnit.MILLISECONDS.toNanos(replicaMaxLagMs) : 0;
+        lastChangeNanos = System.nanoTime() - replicaLagNanos;
+    }
+
+    // Выполняется после остальных слушателей: новый маркер появляется только когда загрузки
+    // списков, начатые до записи, уже отвязаны в ReadCoalescer
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        lastChangeNanos = System.nanoTime();
+        version.incrementAndGet();
+    }
+
+    public String getMarker() {
+        long current = version.get();
+        if (replicaLagNanos > 0 && System.nanoTime() - lastChangeNanos < replicaLagNanos) {
+            return null;
+        }
+        return epoch + "-" + current;
+    }
+}
@@ -0,0 +1,79 @@
+package com.rest.service.coalescing;
+
+import com.rest.service.events.EmployeeChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.function.Supplier;
+
+// Объединение одновременных одинаковых чтений в EmployeeServiceImpl. Когда сотни запросов
+// одновременно просят одного и того же работника или одну и ту же страницу списка, в базу
+// идет один запрос в одной read-only транзакции, остальные ждут его результат и свою
+// транзакцию не открывают. Поэтому транзакция открывается здесь, вокруг загрузки ведущего,
+// а не аннотацией на методе сервиса. Если вызов пришел изнутри уже открытой транзакции,
+// загрузка выполняется в ней как обычно, без объединения.
+// После коммита любой записи идущие загрузки отвязываются от ключей (работник - по id,
+// списки - все), поэтому запрос, пришедший после записи, не получит данные до нее.
+@Component
+public class ReadCoalescer {
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${read.coalescing.enabled}")
+    private boolean enabled;
+
+    private final SingleFlight<Integer> employees = new SingleFlight<>();
+    private final SingleFlight<Object> lists = new SingleFlight<>();
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    public <V> V employee(int id, Supplier<V> loader) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return inTransaction(loader);
+        }
+        return employees.execute(id, () -> inTransaction(loader));
+    }
+
+    // key должен однозначно описывать запрос, например список из имени запроса и параметров
+    public <V> V list(Object key, Supplier<V> loader) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return inTransaction(loader);
+        }
+        return lists.execute(key, () -> inTransaction(loader));
+    }
+
+    // Выполняется раньше остальных слушателей: кэши, которые сбрасываются по тому же событию,
+    // не должны успеть заполниться результатом загрузки, начатой до записи.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        employees.invalidate(event.getId());
+        lists.invalidateAll();
+    }
+
+    public SingleFlight<Integer> getEmployeeFlights() {
+        return employees;
+    }
+
+    public SingleFlight<Object> getListFlights() {
+        return lists;
+    }
+
+    private <V> V inTransaction(Supplier<V> loader) {
+        return readOnlyTransaction.execute(status -> loader.get());
+    }
+}
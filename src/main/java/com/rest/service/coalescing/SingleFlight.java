@@ -0,0 +1,85 @@
+package com.rest.service.coalescing;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Объединение одинаковых одновременных загрузок (single flight). Первый вызов execute для
+// ключа становится ведущим: регистрирует незавершенный CompletableFuture и сам выполняет
+// загрузку. Все, кто пришел с тем же ключом, пока она идет, ждут этот же future и получают
+// тот же результат или то же исключение. После завершения ключ удаляется, следующий вызов
+// снова идет в базу: это не кэш, а только защита от одновременных одинаковых запросов.
+// Ключи хранятся в ConcurrentHashMap, регистрация - putIfAbsent, общей блокировки нет.
+// invalidate отвязывает идущую загрузку от ключа: те, кто уже ждет, получат ее результат,
+// а новые вызовы начнут свою загрузку и увидят данные после записи.
+public class SingleFlight<K> {
+
+    private final ConcurrentMap<K, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public <V> V execute(K key, Supplier<V> loader) {
+        CompletableFuture<Object> flight = flights.get(key);
+        if (flight == null) {
+            CompletableFuture<Object> created = new CompletableFuture<>();
+            flight = flights.putIfAbsent(key, created);
+            if (flight == null) {
+                return lead(key, created, loader);
+            }
+        }
+        joined.increment();
+        try {
+            return (V) flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(K key) {
+        flights.remove(key);
+    }
+
+    public void invalidateAll() {
+        flights.clear();
+    }
+
+    public LongAdder getLoads() {
+        return loads;
+    }
+
+    public LongAdder getJoined() {
+        return joined;
+    }
+
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    // Ключ освобождается до того, как ждущие получат результат: иначе новые вызовы могли бы
+    // присоединяться к уже завершенной загрузке, и она работала бы как кэш без срока жизни.
+    private <V> V lead(K key, CompletableFuture<Object> flight, Supplier<V> loader) {
+        loads.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, flight);
+        flight.complete(value);
+        return value;
+    }
+}
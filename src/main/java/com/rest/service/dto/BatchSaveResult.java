@@ -0,0 +1,34 @@
+package com.rest.service.dto;
+
+// Итог пакетного сохранения. Работники сохраняются порциями, каждая в своей транзакции,
+// поэтому при ошибке saved показывает сколько записей из начала запроса уже сохранено,
+// а error содержит причину остановки.
+public class BatchSaveResult {
+
+    private int saved;
+    private String error;
+
+    public BatchSaveResult() {
+    }
+
+    public BatchSaveResult(int saved, String error) {
+        this.saved = saved;
+        this.error = error;
+    }
+
+    public int getSaved() {
+        return saved;
+    }
+
+    public void setSaved(int saved) {
+        this.saved = saved;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
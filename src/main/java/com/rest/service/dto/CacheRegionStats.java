@@ -0,0 +1,72 @@
+package com.rest.service.dto;
+
+// Счетчики одного региона кэша второго уровня.
+public class CacheRegionStats {
+
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long removals;
+    private long evictions;
+    private float hitPercentage;
+
+    public CacheRegionStats() {
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public void setPuts(long puts) {
+        this.puts = puts;
+    }
+
+    public long getRemovals() {
+        return removals;
+    }
+
+    public void setRemovals(long removals) {
+        this.removals = removals;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public float getHitPercentage() {
+        return hitPercentage;
+    }
+
+    public void setHitPercentage(float hitPercentage) {
+        this.hitPercentage = hitPercentage;
+    }
+}
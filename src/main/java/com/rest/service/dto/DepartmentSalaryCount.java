@@ -0,0 +1,28 @@
+package com.rest.service.dto;
+
+// Сколько работников отдела получают данную зарплату. Результат группировки
+// по department и salary, из него заново строятся агрегаты по отделам.
+public class DepartmentSalaryCount {
+
+    private final String department;
+    private final int salary;
+    private final long count;
+
+    public DepartmentSalaryCount(String department, int salary, long count) {
+        this.department = department;
+        this.salary = salary;
+        this.count = count;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public int getSalary() {
+        return salary;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
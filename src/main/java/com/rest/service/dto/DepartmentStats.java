@@ -0,0 +1,72 @@
+package com.rest.service.dto;
+
+// Статистика зарплат одного отдела для GET /api/departments/stats
+public class DepartmentStats {
+
+    private String department;
+    private long count;
+    private long salarySum;
+    private int minSalary;
+    private int maxSalary;
+    private double avgSalary;
+
+    public DepartmentStats() {
+    }
+
+    public DepartmentStats(String department, long count, long salarySum, int minSalary, int maxSalary) {
+        this.department = department;
+        this.count = count;
+        this.salarySum = salarySum;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+        this.avgSalary = count == 0 ? 0 : (double) salarySum / count;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getSalarySum() {
+        return salarySum;
+    }
+
+    public void setSalarySum(long salarySum) {
+        this.salarySum = salarySum;
+    }
+
+    public int getMinSalary() {
+        return minSalary;
+    }
+
+    public void setMinSalary(int minSalary) {
+        this.minSalary = minSalary;
+    }
+
+    public int getMaxSalary() {
+        return maxSalary;
+    }
+
+    public void setMaxSalary(int maxSalary) {
+        this.maxSalary = maxSalary;
+    }
+
+    public double getAvgSalary() {
+        return avgSalary;
+    }
+
+    public void setAvgSalary(double avgSalary) {
+        this.avgSalary = avgSalary;
+    }
+}
@@ -0,0 +1,71 @@
+package com.rest.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.rest.entity.Employee;
+
+import java.util.Map;
+
+// Одно изменение в ленте GET/api/employees/changes. sequence - номер изменения, растет
+// на единицу с каждым коммитом изменения работника и начинается заново после перезапуска. type - CREATED, UPDATED или DELETED.
+// employee - новое состояние после создания или полного изменения, changes - измененные
+// поля после PATCH, для удаления оба поля отсутствуют.
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class EmployeeChange {
+
+    private long sequence;
+    private String type;
+    private int id;
+    private Employee employee;
+    private Map<String, Object> changes;
+
+    public EmployeeChange() {
+    }
+
+    public EmployeeChange(long sequence, String type, int id, Employee employee, Map<String, Object> changes) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.employee = employee;
+        this.changes = changes;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public void setEmployee(Employee employee) {
+        this.employee = employee;
+    }
+
+    public Map<String, Object> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(Map<String, Object> changes) {
+        this.changes = changes;
+    }
+}
@@ -0,0 +1,45 @@
+package com.rest.service.dto;
+
+import java.util.List;
+import java.util.Map;
+
+// Страница работников, в которой у каждого работника только поля, запрошенные параметром
+// fields, и всегда id. Курсор nextCursor и ссылка next устроены так же, как в EmployeePage.
+public class EmployeeFieldsPage {
+
+    private List<Map<String, Object>> employees;
+    private Integer nextCursor;
+    private String next;
+
+    public EmployeeFieldsPage() {
+    }
+
+    public EmployeeFieldsPage(List<Map<String, Object>> employees, Integer nextCursor) {
+        this.employees = employees;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Map<String, Object>> getEmployees() {
+        return employees;
+    }
+
+    public void setEmployees(List<Map<String, Object>> employees) {
+        this.employees = employees;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,37 @@
+package com.rest.service.dto;
+
+import com.rest.entity.Employee;
+
+import java.util.List;
+
+// Результат получения нескольких работников по списку id. employees - найденные работники
+// в порядке запроса, missing - id, которых нет в базе.
+public class EmployeeLookupResult {
+
+    private List<Employee> employees;
+    private List<Integer> missing;
+
+    public EmployeeLookupResult() {
+    }
+
+    public EmployeeLookupResult(List<Employee> employees, List<Integer> missing) {
+        this.employees = employees;
+        this.missing = missing;
+    }
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    public void setEmployees(List<Employee> employees) {
+        this.employees = employees;
+    }
+
+    public List<Integer> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<Integer> missing) {
+        this.missing = missing;
+    }
+}
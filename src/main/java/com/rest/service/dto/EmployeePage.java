@@ -0,0 +1,47 @@
+package com.rest.service.dto;
+
+import com.rest.entity.Employee;
+
+import java.util.List;
+
+// Одна страница списка работников. nextCursor - id последнего работника на странице,
+// его нужно передать параметром after, чтобы получить следующую страницу. Если страниц
+// больше нет, nextCursor и next равны null.
+public class EmployeePage {
+
+    private List<Employee> employees;
+    private Integer nextCursor;
+    private String next;
+
+    public EmployeePage() {
+    }
+
+    public EmployeePage(List<Employee> employees, Integer nextCursor) {
+        this.employees = employees;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    public void setEmployees(List<Employee> employees) {
+        this.employees = employees;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
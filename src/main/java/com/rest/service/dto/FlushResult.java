@@ -0,0 +1,43 @@
+package com.rest.service.dto;
+
+// Итог записи очереди отложенных изменений: сколько работников записано в базу, сколько
+// изменений отброшено из-за ошибки и сколько заняла запись.
+public class FlushResult {
+
+    private int flushed;
+    private int failed;
+    private long elapsedMillis;
+
+    public FlushResult() {
+    }
+
+    public FlushResult(int flushed, int failed, long elapsedMillis) {
+        this.flushed = flushed;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getFlushed() {
+        return flushed;
+    }
+
+    public void setFlushed(int flushed) {
+        this.flushed = flushed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
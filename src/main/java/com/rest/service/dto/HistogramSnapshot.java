@@ -0,0 +1,40 @@
+package com.rest.service.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Снимок гистограммы задержек. buckets - накопительные счетчики: ключ - верхняя граница
+// корзины в секундах, значение - сколько замеров не превысили эту границу.
+public class HistogramSnapshot {
+
+    private long count;
+    private double sumSeconds;
+    private Map<String, Long> buckets = new LinkedHashMap<>();
+
+    public HistogramSnapshot() {
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getSumSeconds() {
+        return sumSeconds;
+    }
+
+    public void setSumSeconds(double sumSeconds) {
+        this.sumSeconds = sumSeconds;
+    }
+
+    public Map<String, Long> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(Map<String, Long> buckets) {
+        this.buckets = buckets;
+    }
+}
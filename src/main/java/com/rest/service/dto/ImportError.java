@@ -0,0 +1,33 @@
+package com.rest.service.dto;
+
+// Ошибка импорта: номер строки входного файла (для порции - номер первой строки порции)
+// и причина.
+public class ImportError {
+
+    private long line;
+    private String message;
+
+    public ImportError() {
+    }
+
+    public ImportError(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,66 @@
+package com.rest.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Итог импорта. В отличие от пакетного сохранения импорт не останавливается на первой ошибке:
+// строка, которую не удалось разобрать, и порция, которую не удалось сохранить, попадают
+// в errors, а импорт продолжается. В errors хранится не больше заданного количества ошибок,
+// errorsTruncated показывает, что часть ошибок не вошла в список.
+public class ImportResult {
+
+    private long records;
+    private long imported;
+    private long failed;
+    private long elapsedMillis;
+    private List<ImportError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    public long getRecords() {
+        return records;
+    }
+
+    public void setRecords(long records) {
+        this.records = records;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ImportError> errors) {
+        this.errors = errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+}
@@ -0,0 +1,72 @@
+package com.rest.service.dto;
+
+// Состояние одного пула подключений и гистограмма времени выдачи подключения.
+public class PoolStats {
+
+    private String name;
+    private String type;
+    private int busy;
+    private int idle;
+    private int total;
+    private int waitingThreads;
+    private HistogramSnapshot checkoutLatency;
+
+    public PoolStats() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getBusy() {
+        return busy;
+    }
+
+    public void setBusy(int busy) {
+        this.busy = busy;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public void setIdle(int idle) {
+        this.idle = idle;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public void setWaitingThreads(int waitingThreads) {
+        this.waitingThreads = waitingThreads;
+    }
+
+    public HistogramSnapshot getCheckoutLatency() {
+        return checkoutLatency;
+    }
+
+    public void setCheckoutLatency(HistogramSnapshot checkoutLatency) {
+        this.checkoutLatency = checkoutLatency;
+    }
+}
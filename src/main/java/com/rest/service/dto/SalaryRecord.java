@@ -0,0 +1,28 @@
+package com.rest.service.dto;
+
+// Отдел и зарплата работника с данным id - все, что нужно агрегатам по отделам.
+// Читается из базы проекцией, без загрузки сущности Employee.
+public class SalaryRecord {
+
+    private final int id;
+    private final String department;
+    private final int salary;
+
+    public SalaryRecord(int id, String department, int salary) {
+        this.id = id;
+        this.department = department;
+        this.salary = salary;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public int getSalary() {
+        return salary;
+    }
+}
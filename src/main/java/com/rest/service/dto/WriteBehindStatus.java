@@ -0,0 +1,58 @@
+package com.rest.service.dto;
+
+// Состояние отложенного изменения работника: PENDING - ждет записи в очереди, DROPPED - не
+// записано и отброшено (reason - почему, droppedAt - когда), NONE - в очереди ничего нет и
+// отброшенных изменений не было: последнее изменение записано или его не было.
+public class WriteBehindStatus {
+
+    public static final String PENDING = "PENDING";
+    public static final String DROPPED = "DROPPED";
+    public static final String NONE = "NONE";
+
+    private int id;
+    private String state;
+    private String reason;
+    private Long droppedAt;
+
+    public WriteBehindStatus() {
+    }
+
+    public WriteBehindStatus(int id, String state, String reason, Long droppedAt) {
+        this.id = id;
+        this.state = state;
+        this.reason = reason;
+        this.droppedAt = droppedAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public Long getDroppedAt() {
+        return droppedAt;
+    }
+
+    public void setDroppedAt(Long droppedAt) {
+        this.droppedAt = droppedAt;
+    }
+}
@@ -0,0 +1,71 @@
+package com.rest.service.events;
+
+import com.rest.entity.Employee;
+import com.rest.service.dto.SalaryRecord;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Событие об изменении работника. Публикуется сервисом внутри транзакции, а слушатели
+// с @TransactionalEventListener получают его только после успешного коммита, поэтому
+// откаченные изменения до них не доходят.
+// employee - новое состояние работника после saveEmployee/saveAll, для PATCH и удаления null.
+// changes - для PATCH измененные поля и их новые значения, в остальных случаях пусто.
+// previous - отдел и зарплата до изменения, если они были нужны и известны: для удаления
+// всегда, для изменения - если менялись department или salary, для создания null.
+public class EmployeeChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final int id;
+    private final Employee employee;
+    private final Map<String, Object> changes;
+    private final SalaryRecord previous;
+
+    private EmployeeChangedEvent(Type type, int id, Employee employee, Map<String, Object> changes,
+                                 SalaryRecord previous) {
+        this.type = type;
+        this.id = id;
+        this.employee = employee;
+        this.changes = changes;
+        this.previous = previous;
+    }
+
+    public static EmployeeChangedEvent saved(Employee employee, SalaryRecord previous, boolean created) {
+        return new EmployeeChangedEvent(created ? Type.CREATED : Type.UPDATED, employee.getId(), employee,
+                Collections.emptyMap(), previous);
+    }
+
+    public static EmployeeChangedEvent patched(int id, Map<String, Object> changes, SalaryRecord previous) {
+        return new EmployeeChangedEvent(Type.UPDATED, id, null, Collections.unmodifiableMap(new LinkedHashMap<>(changes)),
+                previous);
+    }
+
+    public static EmployeeChangedEvent deleted(SalaryRecord previous) {
+        return new EmployeeChangedEvent(Type.DELETED, previous.getId(), null, Collections.emptyMap(), previous);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public Map<String, Object> getChanges() {
+        return changes;
+    }
+
+    public SalaryRecord getPrevious() {
+        return previous;
+    }
+}
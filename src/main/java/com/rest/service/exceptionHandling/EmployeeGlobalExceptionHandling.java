@@ -1,9 +1,28 @@
 package com.rest.service.exceptionHandling;
 
+import com.rest.service.admission.AdmissionRejectedException;
+import org.hibernate.HibernateException;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.JDBCConnectionException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+import javax.persistence.PersistenceException;
+import java.util.concurrent.RejectedExecutionException;
 // Внутри все элементарно. Помечаем класс аннотацией и переносим внутрь два метода которые мы написали
 // на прошлой лекции. Все./
 @ControllerAdvice
@@ -15,6 +34,64 @@ public class EmployeeGlobalExceptionHandling {
         data.setInfo(e.getMessage());
         return new ResponseEntity<>(data, HttpStatus.NOT_FOUND);
     }
+    // Переполненная очередь запросов к базе и истекший таймаут асинхронного запроса - временная
+    // перегрузка сервера, а не ошибка клиента: отвечаем 503 и предлагаем повторить запрос позже.
+    @ExceptionHandler({RejectedExecutionException.class, AsyncRequestTimeoutException.class})
+    public ResponseEntity<EmployeeIncorrectData> handleUnavailable(Exception e) {
+        EmployeeIncorrectData data = new EmployeeIncorrectData();
+        data.setInfo(e.getMessage() != null ? e.getMessage() : "Request timed out");
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, e instanceof AdmissionRejectedException
+                ? Integer.toString(((AdmissionRejectedException) e).getRetryAfterSeconds()) : "1");
+        return new ResponseEntity<>(data, headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    // Изменение работника по устаревшей версии: между чтением и записью его уже изменил
+    // кто-то другой. Hibernate не нашел строку с нужной версией, транзакция откатилась,
+    // и клиент должен перечитать работника и повторить изменение - отвечаем 409 Conflict.
+    @ExceptionHandler({OptimisticLockingFailureException.class, StaleStateException.class})
+    public ResponseEntity<EmployeeIncorrectData> handleConflict(Exception e) {
+        EmployeeIncorrectData data = new EmployeeIncorrectData();
+        data.setInfo("Employee was changed by another request, reload it and retry");
+        return new ResponseEntity<>(data, HttpStatus.CONFLICT);
+    }
+    // Версия из If-Match не совпала с текущей - 412 Precondition Failed.
+    @ExceptionHandler
+    public ResponseEntity<EmployeeIncorrectData> handleException(PreconditionFailedException e) {
+        EmployeeIncorrectData data = new EmployeeIncorrectData();
+        data.setInfo(e.getMessage());
+        return new ResponseEntity<>(data, HttpStatus.PRECONDITION_FAILED);
+    }
+    // Ошибки базы - не ошибки клиента, и отвечать на них 400 нельзя. Недоступная база, пул без
+    // свободных соединений, взаимная блокировка или таймаут запроса проходят сами, поэтому это
+    // 503 с Retry-After. Нарушение ограничения базы - конфликт с текущими данными, 409.
+    // Остальные ошибки доступа к данным - 500. Исключения Hibernate из DAO приходят без
+    // перевода в DataAccessException, поэтому перечисляем и их. Более точные обработчики выше
+    // (409 для версий) Spring выбирает раньше этих.
+    @ExceptionHandler({CannotCreateTransactionException.class, TransientDataAccessException.class,
+            RecoverableDataAccessException.class, DataAccessResourceFailureException.class,
+            JDBCConnectionException.class, LockAcquisitionException.class,
+            org.hibernate.QueryTimeoutException.class})
+    public ResponseEntity<EmployeeIncorrectData> handleDatabaseUnavailable(Exception e) {
+        EmployeeIncorrectData data = new EmployeeIncorrectData();
+        data.setInfo("Database is temporarily unavailable, retry later");
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>(data, headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    @ExceptionHandler({DataIntegrityViolationException.class, ConstraintViolationException.class})
+    public ResponseEntity<EmployeeIncorrectData> handleIntegrityViolation(Exception e) {
+        EmployeeIncorrectData data = new EmployeeIncorrectData();
+        data.setInfo("Request conflicts with the stored data");
+        return new ResponseEntity<>(data, HttpStatus.CONFLICT);
+    }
+    @ExceptionHandler({DataAccessException.class, TransactionException.class, HibernateException.class,
+            PersistenceException.class})
+    public ResponseEntity<EmployeeIncorrectData> handleDatabaseError(Exception e) {
+        EmployeeIncorrectData data = new EmployeeIncorrectData();
+        data.setInfo("Database error");
+        return new ResponseEntity<>(data, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+    // Все остальное считаем некорректным запросом клиента
     @ExceptionHandler
     public ResponseEntity<EmployeeIncorrectData> handleException(Exception e) {
         EmployeeIncorrectData data = new EmployeeIncorrectData();
@@ -0,0 +1,10 @@
+package com.rest.service.exceptionHandling;
+
+// Условие запроса не выполнено: версия работника из If-Match уже не текущая (или работника
+// нет). EmployeeGlobalExceptionHandling отвечает на него 412 Precondition Failed.
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,150 @@
+package com.rest.service.existence;
+
+import com.rest.service.events.EmployeeChangedEvent;
+import com.rest.service.metrics.MetricsRegistry;
+import com.rest.service.services.EmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+// Множество id всех работников в памяти (IdBitmap), чтобы запросы по несуществующим id
+// получали 404 без запроса к базе. Строится из базы сразу после запуска, обновляется по
+// событиям EmployeeChangedEvent после коммита и раз в existence.rebuildIntervalMs строится
+// заново, как и поисковый индекс: так в него попадают изменения, сделанные мимо сервиса.
+// Пока множество не построено (или при existence.enabled=false), mightExist отвечает true
+// и запрос идет в базу как раньше. Ответ false точен для всех изменений через сервис этого
+// экземпляра приложения. Работников, созданных другими экземплярами на той же базе, фильтр
+// увидит только после перестроения, поэтому в таком развертывании интервал нужно уменьшить
+// или выключить фильтр.
+// Проверки идут под оптимистичным чтением StampedLock без блокировок, изменения -
+// под блокировкой записи.
+@Component
+public class EmployeeExistenceFilter {
+
+    @Autowired
+    private EmployeeService service;
+
+    @Autowired
+    private MetricsRegistry registry;
+
+    @Value("${existence.enabled}")
+    private boolean enabled;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile IdBitmap ids;
+    private volatile Queue<EmployeeChangedEvent> pending;
+    private final LongAdder absent = new LongAdder();
+    private final LongAdder present = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        String help = "Employee id checks answered by the existence filter";
+        registry.counter("existence_filter_checks_total", help, absent, "result", "absent");
+        registry.counter("existence_filter_checks_total", help, present, "result", "present");
+        registry.counter("existence_filter_checks_total", help, unknown, "result", "unknown");
+        registry.gauge("existence_filter_ids", "Employee ids held by the existence filter", this::getSize);
+        registry.gauge("existence_filter_memory_bytes", "Estimated memory used by the existence filter",
+                this::getMemoryBytes);
+    }
+
+    // false - работника с таким id точно нет, true - есть или множество еще не построено
+    public boolean mightExist(int id) {
+        IdBitmap current = ids;
+        if (current == null) {
+            unknown.increment();
+            return true;
+        }
+        long stamp = lock.tryOptimisticRead();
+        boolean exists = current.contains(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                exists = current.contains(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        (exists ? present : absent).increment();
+        return exists;
+    }
+
+    @TransactionalEventListener
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            Queue<EmployeeChangedEvent> queue = pending;
+            if (queue != null) {
+                queue.add(event);
+            }
+            IdBitmap current = ids;
+            if (current != null) {
+                apply(current, event);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // id читаются из основной базы (forEachEmployeeId - не readOnly транзакция): на отстающей
+    // реплике не было бы только что созданных работников, и фильтр отвечал бы на них 404.
+    // pending заводится раньше, чем открывается транзакция чтения: изменение, которое чтение
+    // не увидело, закоммичено позже и будет повторено из очереди.
+    @Scheduled(initialDelay = 0, fixedDelayString = "${existence.rebuildIntervalMs}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        pending = new ConcurrentLinkedQueue<>();
+        try {
+            IdBitmap rebuilt = new IdBitmap();
+            service.forEachEmployeeId(rebuilt::add);
+            long stamp = lock.writeLock();
+            try {
+                for (EmployeeChangedEvent event : pending) {
+                    apply(rebuilt, event);
+                }
+                ids = rebuilt;
+            } finally {
+                pending = null;
+                lock.unlockWrite(stamp);
+            }
+        } finally {
+            pending = null;
+        }
+    }
+
+    public int getSize() {
+        IdBitmap current = ids;
+        return current == null ? 0 : current.size();
+    }
+
+    public long getMemoryBytes() {
+        IdBitmap current = ids;
+        if (current == null) {
+            return 0;
+        }
+        long stamp = lock.readLock();
+        try {
+            return current.estimateMemoryBytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static void apply(IdBitmap ids, EmployeeChangedEvent event) {
+        if (event.getType() == EmployeeChangedEvent.Type.DELETED) {
+            ids.remove(event.getId());
+        } else {
+            ids.add(event.getId());
+        }
+    }
+}
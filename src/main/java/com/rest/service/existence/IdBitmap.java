@@ -0,0 +1,168 @@
+package com.rest.service.existence;
+
+import java.util.Arrays;
+
+// Сжатое множество неотрицательных int в духе Roaring bitmap. Пространство id делится на
+// блоки по 65536 значений (старшие 16 бит). В блоке, где меньше ARRAY_MAX значений, хранится
+// отсортированный массив младших 16 бит (2 байта на id), в более плотном - битовая карта
+// на 65536 бит (8 КБ на блок). Идущие подряд id работников из генератора занимают около
+// 8 КБ на 65536 работников, а редкие id из далекого диапазона - по 2 байта.
+// Класс не потокобезопасен, но contains не бросает исключений при одновременном изменении
+// и может выполняться под оптимистичным чтением StampedLock с последующей проверкой.
+final class IdBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 65536 / 64;
+
+    private Object[] containers = new Object[0];
+    private int[] cardinalities = new int[0];
+    private int size;
+
+    boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int high = id >>> 16;
+        Object[] blocks = containers;
+        int[] counts = cardinalities;
+        if (high >= blocks.length || high >= counts.length) {
+            return false;
+        }
+        Object container = blocks[high];
+        char low = (char) id;
+        if (container instanceof long[]) {
+            long[] bits = (long[]) container;
+            return bits.length == BITMAP_WORDS && (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        if (container instanceof char[]) {
+            char[] values = (char[]) container;
+            return Arrays.binarySearch(values, 0, Math.min(counts[high], values.length), low) >= 0;
+        }
+        return false;
+    }
+
+    boolean add(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id " + id);
+        }
+        int high = id >>> 16;
+        char low = (char) id;
+        if (high >= containers.length) {
+            containers = Arrays.copyOf(containers, high + 1);
+            cardinalities = Arrays.copyOf(cardinalities, high + 1);
+        }
+        Object container = containers[high];
+        if (container == null) {
+            containers[high] = new char[]{low, 0, 0, 0};
+            cardinalities[high] = 1;
+            size++;
+            return true;
+        }
+        if (container instanceof long[]) {
+            long[] bits = (long[]) container;
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) != 0) {
+                return false;
+            }
+            bits[low >>> 6] |= mask;
+            cardinalities[high]++;
+            size++;
+            return true;
+        }
+        char[] values = (char[]) container;
+        int count = cardinalities[high];
+        int index = Arrays.binarySearch(values, 0, count, low);
+        if (index >= 0) {
+            return false;
+        }
+        if (count == ARRAY_MAX) {
+            long[] bits = toBitmap(values, count);
+            bits[low >>> 6] |= 1L << low;
+            containers[high] = bits;
+        } else {
+            index = -index - 1;
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.min(values.length * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, count - index);
+            values[index] = low;
+            containers[high] = values;
+        }
+        cardinalities[high]++;
+        size++;
+        return true;
+    }
+
+    boolean remove(int id) {
+        int high = id >>> 16;
+        if (id < 0 || high >= containers.length || containers[high] == null) {
+            return false;
+        }
+        char low = (char) id;
+        Object container = containers[high];
+        if (container instanceof long[]) {
+            long[] bits = (long[]) container;
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~mask;
+            // Обратно в массив только при заметно меньшем числе значений, чтобы блок на границе
+            // ARRAY_MAX не переписывался при каждом добавлении и удалении
+            if (--cardinalities[high] <= ARRAY_MAX / 2) {
+                containers[high] = toArray(bits, cardinalities[high]);
+            }
+        } else {
+            char[] values = (char[]) container;
+            int count = cardinalities[high];
+            int index = Arrays.binarySearch(values, 0, count, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, count - index - 1);
+            if (--cardinalities[high] == 0) {
+                containers[high] = null;
+            }
+        }
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Оценка занимаемой памяти: массивы блоков и содержимое блоков с заголовками объектов
+    long estimateMemoryBytes() {
+        long bytes = 32 + 16 + 8L * containers.length + 16 + 4L * cardinalities.length;
+        for (Object container : containers) {
+            if (container instanceof long[]) {
+                bytes += 16 + 8L * BITMAP_WORDS;
+            } else if (container instanceof char[]) {
+                bytes += 16 + 2L * ((char[]) container).length;
+            }
+        }
+        return bytes;
+    }
+
+    private static long[] toBitmap(char[] values, int count) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < count; i++) {
+            bits[values[i] >>> 6] |= 1L << values[i];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int count) {
+        char[] values = new char[Math.max(count, 4)];
+        int index = 0;
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                values[index++] = (char) (word * 64 + Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+            }
+        }
+        return values;
+    }
+}
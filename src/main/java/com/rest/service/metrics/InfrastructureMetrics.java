@@ -0,0 +1,122 @@
+package com.rest.service.metrics;
+
+import com.rest.configuration.ReadOnlyRoutingDataSource;
+import com.rest.service.async.DbExecutor;
+import com.rest.service.cache.CacheStatistics;
+import com.rest.service.coalescing.ReadCoalescer;
+import com.rest.service.coalescing.SingleFlight;
+import com.rest.service.dto.CacheRegionStats;
+import com.rest.service.search.EmployeeSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+// Публикует в реестре метрики инфраструктуры: состояние пулов подключений и счетчики
+// регионов кэша второго уровня.
+@Component
+public class InfrastructureMetrics {
+
+    private interface PoolGauge {
+        int read() throws SQLException;
+    }
+
+    @Autowired
+    private MetricsRegistry registry;
+
+    @Autowired
+    private ReadOnlyRoutingDataSource routingDataSource;
+
+    @Autowired
+    private CacheStatistics cacheStatistics;
+
+    @Autowired
+    private DbExecutor dbExecutor;
+
+    @Autowired
+    private EmployeeSearchIndex searchIndex;
+
+    @Autowired
+    private ReadCoalescer readCoalescer;
+
+    @PostConstruct
+    public void register() {
+        for (DataSource dataSource : routingDataSource.getDataSources().values()) {
+            if (dataSource instanceof InstrumentedDataSource) {
+                registerPool((InstrumentedDataSource) dataSource);
+            }
+        }
+        registry.collector(this::collectCacheStats);
+        registry.gauge("db_executor_tasks_active", "Database tasks running in the async executor",
+                dbExecutor::getActiveCount);
+        registry.gauge("db_executor_tasks_queued", "Database tasks waiting in the async executor queue",
+                dbExecutor::getQueuedCount);
+        registry.gauge("db_executor_max_concurrency", "Maximum concurrent database tasks in the async executor",
+                dbExecutor::getMaxConcurrency);
+        registry.gauge("db_executor_virtual_threads", "1 if the async executor runs on virtual threads",
+                () -> dbExecutor.isVirtual() ? 1 : 0);
+        registry.gauge("search_index_documents", "Employees in the in-memory search index",
+                searchIndex::getDocumentCount);
+        registry.gauge("search_index_memory_bytes", "Estimated heap used by the search index",
+                searchIndex::getMemoryBytes);
+        registry.gauge("search_index_bytes_per_document", "Estimated search index heap per indexed employee",
+                () -> searchIndex.getDocumentCount() == 0 ? 0
+                        : (double) searchIndex.getMemoryBytes() / searchIndex.getDocumentCount());
+        registerFlights("employee", readCoalescer.getEmployeeFlights());
+        registerFlights("list", readCoalescer.getListFlights());
+    }
+
+    private void registerFlights(String kind, SingleFlight<?> flights) {
+        registry.counter("read_coalescing_loads_total", "Reads that went to the database",
+                flights.getLoads(), "kind", kind);
+        registry.counter("read_coalescing_joined_total", "Reads that waited for an identical in-flight read",
+                flights.getJoined(), "kind", kind);
+        registry.gauge("read_coalescing_in_flight", "Distinct reads currently in flight",
+                flights::getInFlight, "kind", kind);
+    }
+
+    private void registerPool(InstrumentedDataSource pool) {
+        String name = pool.getName();
+        poolGauge("db_pool_connections_busy", "Connections checked out of the pool", name, pool::getBusyConnections);
+        poolGauge("db_pool_connections_idle", "Idle connections in the pool", name, pool::getIdleConnections);
+        poolGauge("db_pool_connections_total", "Open connections in the pool", name, pool::getTotalConnections);
+        poolGauge("db_pool_threads_waiting", "Threads waiting for a connection", name,
+                pool::getThreadsAwaitingConnection);
+        registry.histogram("db_pool_checkout_seconds", "Time to check a connection out of the pool",
+                pool.getCheckoutLatency(), "pool", name);
+    }
+
+    private void poolGauge(String metric, String help, String pool, PoolGauge gauge) {
+        registry.gauge(metric, help, () -> {
+            try {
+                return gauge.read();
+            } catch (SQLException e) {
+                return Double.NaN;
+            }
+        }, "pool", pool);
+    }
+
+    private void collectCacheStats(PrometheusTextWriter writer) {
+        List<CacheRegionStats> regions = cacheStatistics.getRegionStats();
+        writer.family("cache_gets_total", "counter", "Second-level cache lookups by region and result");
+        for (CacheRegionStats region : regions) {
+            writer.sample("cache_gets_total", PrometheusTextWriter.labels("region", region.getRegion(),
+                    "result", "hit"), region.getHits());
+            writer.sample("cache_gets_total", PrometheusTextWriter.labels("region", region.getRegion(),
+                    "result", "miss"), region.getMisses());
+        }
+        writer.family("cache_puts_total", "counter", "Second-level cache puts by region");
+        for (CacheRegionStats region : regions) {
+            writer.sample("cache_puts_total", PrometheusTextWriter.labels("region", region.getRegion()),
+                    region.getPuts());
+        }
+        writer.family("cache_evictions_total", "counter", "Second-level cache evictions by region");
+        for (CacheRegionStats region : regions) {
+            writer.sample("cache_evictions_total", PrometheusTextWriter.labels("region", region.getRegion()),
+                    region.getEvictions());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.rest.service.metrics;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Обертка над пулом подключений, которая замеряет время выдачи подключения из пула и
+// читает текущее состояние пула: сколько подключений занято, свободно и сколько потоков
+// ждут подключения. Поддерживаются пулы c3p0 и HikariCP.
+public class InstrumentedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final String name;
+    private final LatencyHistogram checkoutLatency = new LatencyHistogram();
+
+    public InstrumentedDataSource(String name, DataSource pool) {
+        super(pool);
+        this.name = name;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return super.getConnection();
+        } finally {
+            checkoutLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return super.getConnection(username, password);
+        } finally {
+            checkoutLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPoolType() {
+        return getTargetDataSource() instanceof HikariDataSource ? "hikari" : "c3p0";
+    }
+
+    public LatencyHistogram getCheckoutLatency() {
+        return checkoutLatency;
+    }
+
+    public int getBusyConnections() throws SQLException {
+        DataSource pool = getTargetDataSource();
+        if (pool instanceof ComboPooledDataSource) {
+            return ((ComboPooledDataSource) pool).getNumBusyConnectionsDefaultUser();
+        }
+        HikariPoolMXBean hikari = hikariPool();
+        return hikari == null ? 0 : hikari.getActiveConnections();
+    }
+
+    public int getIdleConnections() throws SQLException {
+        DataSource pool = getTargetDataSource();
+        if (pool instanceof ComboPooledDataSource) {
+            return ((ComboPooledDataSource) pool).getNumIdleConnectionsDefaultUser();
+        }
+        HikariPoolMXBean hikari = hikariPool();
+        return hikari == null ? 0 : hikari.getIdleConnections();
+    }
+
+    public int getTotalConnections() throws SQLException {
+        DataSource pool = getTargetDataSource();
+        if (pool instanceof ComboPooledDataSource) {
+            return ((ComboPooledDataSource) pool).getNumConnectionsDefaultUser();
+        }
+        HikariPoolMXBean hikari = hikariPool();
+        return hikari == null ? 0 : hikari.getTotalConnections();
+    }
+
+    public int getThreadsAwaitingConnection() throws SQLException {
+        DataSource pool = getTargetDataSource();
+        if (pool instanceof ComboPooledDataSource) {
+            return ((ComboPooledDataSource) pool).getNumThreadsAwaitingCheckoutDefaultUser();
+        }
+        HikariPoolMXBean hikari = hikariPool();
+        return hikari == null ? 0 : hikari.getThreadsAwaitingConnection();
+    }
+
+    private HikariPoolMXBean hikariPool() {
+        return ((HikariDataSource) getTargetDataSource()).getHikariPoolMXBean();
+    }
+
+    @Override
+    public void close() throws Exception {
+        DataSource pool = getTargetDataSource();
+        if (pool instanceof AutoCloseable) {
+            ((AutoCloseable) pool).close();
+        }
+    }
+}
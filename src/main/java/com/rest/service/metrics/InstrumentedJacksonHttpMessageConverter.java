@@ -0,0 +1,74 @@
+package com.rest.service.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+// Конвертер Jackson, который замеряет время сериализации ответов и разбора тел запросов.
+// Работает с любым ObjectMapper, поэтому подходит для json и для бинарных форматов Jackson.
+// Формат ответа зависит от Accept, поэтому в ответ добавляется Vary: Accept, чтобы кэши
+// не отдали клиенту json, сохраненный для другого клиента в Smile, и наоборот.
+public class InstrumentedJacksonHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    private static final String NAME = "http_message_conversion_seconds";
+    private static final String HELP = "Time spent serializing responses and parsing request bodies";
+
+    private final LatencyHistogram writeLatency;
+    private final LatencyHistogram readLatency;
+
+    public InstrumentedJacksonHttpMessageConverter(ObjectMapper objectMapper, MetricsRegistry registry,
+                                                   String format, MediaType... supportedMediaTypes) {
+        super(objectMapper, supportedMediaTypes);
+        this.writeLatency = registry.histogram(NAME, HELP, "format", format, "direction", "write");
+        this.readLatency = registry.histogram(NAME, HELP, "format", format, "direction", "read");
+    }
+
+    @Override
+    protected void addDefaultHeaders(HttpHeaders headers, Object object, MediaType contentType) throws IOException {
+        super.addDefaultHeaders(headers, object, contentType);
+        if (!headers.getVary().contains(HttpHeaders.ACCEPT)) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            writeLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        long start = System.nanoTime();
+        try {
+            return super.read(type, contextClass, inputMessage);
+        } finally {
+            readLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        long start = System.nanoTime();
+        try {
+            return super.readInternal(clazz, inputMessage);
+        } finally {
+            readLatency.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.rest.service.metrics;
+
+import com.rest.service.dto.HistogramSnapshot;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+// Гистограмма задержек с фиксированными границами корзин. Запись не создает объектов и
+// не берет блокировок: каждая корзина - это LongAdder, который раскладывает инкременты
+// конкурентных потоков по разным ячейкам.
+public class LatencyHistogram {
+
+    // Верхние границы корзин в наносекундах: от 100 мкс до 10 с.
+    private static final long[] BOUNDS = {
+            100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L,
+            10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L,
+            1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int i = 0;
+        while (i < BOUNDS.length && nanos > BOUNDS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sum.add(nanos);
+    }
+
+    // Количество корзин, последняя корзина не ограничена сверху.
+    public int getBucketCount() {
+        return buckets.length;
+    }
+
+    // Верхняя граница корзины в секундах, для последней корзины - бесконечность.
+    public double getUpperBoundSeconds(int bucket) {
+        return bucket < BOUNDS.length ? BOUNDS[bucket] / 1e9 : Double.POSITIVE_INFINITY;
+    }
+
+    public long getBucket(int bucket) {
+        return buckets[bucket].sum();
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public double getSumSeconds() {
+        return sum.sum() / 1e9;
+    }
+
+    public HistogramSnapshot snapshot() {
+        HistogramSnapshot snapshot = new HistogramSnapshot();
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            double bound = getUpperBoundSeconds(i);
+            snapshot.getBuckets().put(Double.isInfinite(bound) ? "+Inf" : BigDecimal.valueOf(bound).toPlainString(), cumulative);
+        }
+        snapshot.setCount(cumulative);
+        snapshot.setSumSeconds(getSumSeconds());
+        return snapshot;
+    }
+}
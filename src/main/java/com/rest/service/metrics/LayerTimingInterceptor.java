@@ -0,0 +1,80 @@
+package com.rest.service.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Замеряет время вызова методов одного слоя приложения (контроллер, сервис или DAO).
+// Гистограммы для всех методов интерфейса (для контроллеров - всех обработчиков запросов)
+// регистрируются при создании, поэтому при вызове остается только найти готовую гистограмму
+// по объекту Method и записать в нее время.
+// Подключается в MyConfig как Advisor к бинам этого слоя.
+public class LayerTimingInterceptor implements MethodInterceptor {
+
+    private static final String NAME = "app_layer_call_seconds";
+    private static final String HELP = "Call latency of controller, service and DAO methods";
+
+    private final MetricsRegistry registry;
+    private final String layer;
+    private final Map<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> byName = new ConcurrentHashMap<>();
+    private final boolean qualifiedNames;
+
+    public LayerTimingInterceptor(MetricsRegistry registry, String layer, Class<?> layerInterface) {
+        this(registry, layer, false);
+        for (Method method : layerInterface.getMethods()) {
+            histograms.put(method, histogram(method));
+        }
+    }
+
+    private LayerTimingInterceptor(MetricsRegistry registry, String layer, boolean qualifiedNames) {
+        this.registry = registry;
+        this.layer = layer;
+        this.qualifiedNames = qualifiedNames;
+    }
+
+    // Слой контроллеров: замеряются методы с @RequestMapping (и @GetMapping и т.п.). У
+    // синхронного и асинхронного контроллера методы называются одинаково, поэтому метка
+    // method здесь - Класс.метод. Асинхронный обработчик замеряется до возврата CompletableFuture,
+    // полное время запроса пишет RequestMetricsFilter.
+    public static LayerTimingInterceptor forControllers(MetricsRegistry registry, String layer,
+                                                        Class<?>... controllers) {
+        LayerTimingInterceptor interceptor = new LayerTimingInterceptor(registry, layer, true);
+        for (Class<?> controller : controllers) {
+            for (Method method : controller.getMethods()) {
+                if (AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class)) {
+                    interceptor.histograms.put(method, interceptor.histogram(method));
+                }
+            }
+        }
+        return interceptor;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            LatencyHistogram histogram = histograms.get(invocation.getMethod());
+            if (histogram == null) {
+                histogram = histograms.computeIfAbsent(invocation.getMethod(), this::histogram);
+            }
+            histogram.record(nanos);
+        }
+    }
+
+    // Перегруженные методы делят одну гистограмму, у них одинаковая метка method.
+    private LatencyHistogram histogram(Method method) {
+        String methodName = qualifiedNames
+                ? method.getDeclaringClass().getSimpleName() + "." + method.getName() : method.getName();
+        return byName.computeIfAbsent(methodName,
+                name -> registry.histogram(NAME, HELP, "layer", layer, "method", name));
+    }
+}
@@ -0,0 +1,115 @@
+package com.rest.service.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+// Реестр метрик приложения. Счетчики и гистограммы регистрируются заранее (при старте или
+// при первом появлении новой комбинации меток), а код, который их обновляет, держит ссылку
+// на сам счетчик. Поэтому запись значения - это только инкремент LongAdder без поиска по
+// имени и без создания объектов. Все метрики отдаются в формате Prometheus через scrape().
+@Component
+public class MetricsRegistry {
+
+    // Источник метрик, значения которого вычисляются в момент выгрузки, например
+    // счетчики кэша или пула подключений.
+    public interface Collector {
+        void collect(PrometheusTextWriter writer);
+    }
+
+    private static class Family {
+        final String name;
+        final String type;
+        final String help;
+        final List<Series> series = new CopyOnWriteArrayList<>();
+
+        Family(String name, String type, String help) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    private static class Series {
+        final String labels;
+        final Object meter;
+
+        Series(String labels, Object meter) {
+            this.labels = labels;
+            this.meter = meter;
+        }
+    }
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    public LongAdder counter(String name, String help, String... labels) {
+        LongAdder counter = new LongAdder();
+        register(name, "counter", help, labels, counter);
+        return counter;
+    }
+
+    // Регистрирует уже существующий счетчик, который ведет сам измеряемый объект.
+    public void counter(String name, String help, LongAdder counter, String... labels) {
+        register(name, "counter", help, labels, counter);
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        register(name, "histogram", help, labels, histogram);
+        return histogram;
+    }
+
+    // Регистрирует уже существующую гистограмму, например время выдачи подключений пула.
+    public void histogram(String name, String help, LatencyHistogram histogram, String... labels) {
+        register(name, "histogram", help, labels, histogram);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        register(name, "gauge", help, labels, value);
+    }
+
+    public void collector(Collector collector) {
+        collectors.add(collector);
+    }
+
+    public String scrape() {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        List<Family> snapshot;
+        synchronized (families) {
+            snapshot = new ArrayList<>(families.values());
+        }
+        for (Family family : snapshot) {
+            writer.family(family.name, family.type, family.help);
+            for (Series series : family.series) {
+                if (series.meter instanceof LongAdder) {
+                    writer.sample(family.name, series.labels, ((LongAdder) series.meter).sum());
+                } else if (series.meter instanceof LatencyHistogram) {
+                    writer.histogram(family.name, series.labels, (LatencyHistogram) series.meter);
+                } else {
+                    writer.sample(family.name, series.labels, ((DoubleSupplier) series.meter).getAsDouble());
+                }
+            }
+        }
+        for (Collector collector : collectors) {
+            collector.collect(writer);
+        }
+        return writer.toString();
+    }
+
+    private void register(String name, String type, String help, String[] labels, Object meter) {
+        synchronized (families) {
+            Family family = families.computeIfAbsent(name, key -> new Family(name, type, help));
+            if (!family.type.equals(type)) {
+                throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type);
+            }
+            family.series.add(new Series(PrometheusTextWriter.labels(labels), meter));
+        }
+    }
+}
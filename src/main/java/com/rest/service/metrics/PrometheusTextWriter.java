@@ -0,0 +1,82 @@
+package com.rest.service.metrics;
+
+import java.math.BigDecimal;
+
+// Формирует текст в формате Prometheus (text exposition format 0.0.4): строки # HELP и # TYPE
+// для каждого семейства метрик и строки вида name{labels} value для значений.
+public class PrometheusTextWriter {
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    public void family(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    public void sample(String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        appendValue(value);
+        out.append('\n');
+    }
+
+    public void histogram(String name, String labels, LatencyHistogram histogram) {
+        long cumulative = 0;
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            cumulative += histogram.getBucket(i);
+            double bound = histogram.getUpperBoundSeconds(i);
+            out.append(name).append("_bucket").append(withLabel(labels, "le",
+                    Double.isInfinite(bound) ? "+Inf" : BigDecimal.valueOf(bound).toPlainString())).append(' ').append(cumulative).append('\n');
+        }
+        out.append(name).append("_sum").append(labels).append(' ');
+        appendValue(histogram.getSumSeconds());
+        out.append('\n');
+        out.append(name).append("_count").append(labels).append(' ').append(cumulative).append('\n');
+    }
+
+    // Строка меток в формате {key="value",...}, значения экранируются по правилам формата.
+    public static String labels(String... keysAndValues) {
+        if (keysAndValues.length == 0) {
+            return "";
+        }
+        StringBuilder labels = new StringBuilder("{");
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(keysAndValues[i]).append("=\"");
+            String value = keysAndValues[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    labels.append('\\').append(c);
+                } else if (c == '\n') {
+                    labels.append("\\n");
+                } else {
+                    labels.append(c);
+                }
+            }
+            labels.append('"');
+        }
+        return labels.append('}').toString();
+    }
+
+    private static String withLabel(String labels, String key, String value) {
+        String label = key + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private void appendValue(double value) {
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (value == (long) value) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,165 @@
+package com.rest.service.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Фильтр замеряет каждый HTTP запрос целиком: количество, ошибки и гистограмму задержек
+// в разрезе шаблона URL (route), HTTP метода и статуса ответа. Метрики всех маршрутов
+// регистрируются при старте по списку @RequestMapping, гистограмма для нового статуса -
+// при первом ответе с этим статусом, дальше запись идет без создания объектов.
+// Фильтр подключается в MyWebInitializer через DelegatingFilterProxy.
+@Component("requestMetricsFilter")
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final String REQUESTS = "http_server_requests_seconds";
+    private static final String ERRORS = "http_server_request_errors_total";
+    private static final String UNMATCHED = "UNMATCHED";
+    private static final String START_ATTRIBUTE = RequestMetricsFilter.class.getName() + ".start";
+
+    private final class RouteMetrics {
+        final String route;
+        final String method;
+        final LongAdder errors;
+        final AtomicReferenceArray<LatencyHistogram> byStatus = new AtomicReferenceArray<>(600);
+
+        RouteMetrics(String route, String method) {
+            this.route = route;
+            this.method = method;
+            this.errors = registry.counter(ERRORS, "Requests that ended with an exception or 5xx status",
+                    "route", route, "method", method);
+        }
+
+        void record(int status, long nanos, boolean failed) {
+            if (status < 0 || status >= byStatus.length()) {
+                status = 0;
+            }
+            LatencyHistogram histogram = byStatus.get(status);
+            if (histogram == null) {
+                histogram = register(status);
+            }
+            histogram.record(nanos);
+            if (failed || status >= 500) {
+                errors.increment();
+            }
+        }
+
+        private synchronized LatencyHistogram register(int status) {
+            LatencyHistogram histogram = byStatus.get(status);
+            if (histogram == null) {
+                histogram = registry.histogram(REQUESTS, "HTTP request latency by route, method and status",
+                        "route", route, "method", method, "status", Integer.toString(status));
+                byStatus.set(status, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    @Autowired
+    private MetricsRegistry registry;
+
+    @Autowired
+    private RequestMappingHandlerMapping handlerMapping;
+
+    private final Map<String, RouteMetrics[]> routes = new ConcurrentHashMap<>();
+
+    // Один слушатель на все асинхронные запросы: состояния в нем нет, время начала запроса
+    // хранится в атрибуте запроса, а запрос и ответ приходят в AsyncEvent
+    private final AsyncListener asyncListener = new AsyncListener() {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            HttpServletRequest request = (HttpServletRequest) event.getSuppliedRequest();
+            record(request, (HttpServletResponse) event.getSuppliedResponse(),
+                    (Long) request.getAttribute(START_ATTRIBUTE), false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    };
+
+    @PostConstruct
+    public void registerRoutes() {
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> mapping : handlerMapping.getHandlerMethods().entrySet()) {
+            for (String pattern : mapping.getKey().getPatternValues()) {
+                for (org.springframework.web.bind.annotation.RequestMethod method :
+                        mapping.getKey().getMethodsCondition().getMethods()) {
+                    routeMetrics(pattern, HttpMethod.valueOf(method.name()));
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.setAttribute(START_ATTRIBUTE, start);
+                request.getAsyncContext().addListener(asyncListener, request, response);
+            } else {
+                record(request, response, start, failed);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long start, boolean failed) {
+        long nanos = System.nanoTime() - start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        if (method == null) {
+            return;
+        }
+        String route = pattern == null ? UNMATCHED : (String) pattern;
+        routeMetrics(route, method).record(response.getStatus(), nanos, failed);
+    }
+
+    private RouteMetrics routeMetrics(String route, HttpMethod method) {
+        RouteMetrics[] byMethod = routes.get(route);
+        if (byMethod == null) {
+            byMethod = routes.computeIfAbsent(route, key -> new RouteMetrics[HttpMethod.values().length]);
+        }
+        RouteMetrics metrics = byMethod[method.ordinal()];
+        if (metrics == null) {
+            synchronized (byMethod) {
+                metrics = byMethod[method.ordinal()];
+                if (metrics == null) {
+                    metrics = new RouteMetrics(route, method.name());
+                    byMethod[method.ordinal()] = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+}
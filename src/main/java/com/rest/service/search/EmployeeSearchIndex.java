@@ -0,0 +1,127 @@
+package com.rest.service.search;
+
+import com.rest.entity.Employee;
+import com.rest.service.dto.EmployeePage;
+import com.rest.service.events.EmployeeChangedEvent;
+import com.rest.service.services.EmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Поиск работников по SearchIndex. Индекс строится из базы сразу после запуска приложения
+// (и при первом поиске, если еще не построен), обновляется по событиям EmployeeChangedEvent
+// после коммита и раз в search.index.rebuildIntervalMs строится заново: так в него попадают
+// изменения, сделанные мимо сервиса, и освобождаются места удаленных работников.
+// События, пришедшие во время перестроения, повторяются на новом индексе перед заменой.
+// Поиски идут параллельно под блокировкой чтения, изменения - под блокировкой записи.
+@Component
+public class EmployeeSearchIndex {
+
+    @Autowired
+    private EmployeeService service;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile SearchIndex index;
+    private volatile Queue<EmployeeChangedEvent> pending;
+
+    @TransactionalEventListener
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            Queue<EmployeeChangedEvent> queue = pending;
+            if (queue != null) {
+                queue.add(event);
+            }
+            SearchIndex current = index;
+            if (current != null) {
+                apply(current, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public EmployeePage search(String query, String department, Integer minSalary, Integer maxSalary,
+                               int afterId, int limit) {
+        if (index == null) {
+            synchronized (this) {
+                if (index == null) {
+                    rebuild();
+                }
+            }
+        }
+        List<Employee> employees;
+        lock.readLock().lock();
+        try {
+            employees = index.search(query, department, minSalary, maxSalary, afterId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (employees.size() <= limit) {
+            return new EmployeePage(employees, null);
+        }
+        employees = new ArrayList<>(employees.subList(0, limit));
+        return new EmployeePage(employees, employees.get(limit - 1).getId());
+    }
+
+    // Работники читаются в обычной (не readOnly) транзакции, то есть из основной базы: события
+    // приходят по коммитам в основной базе, а отстающая реплика потеряла бы недавние изменения.
+    // Очередь pending создается до начала транзакции, поэтому каждое изменение либо уже видно
+    // в основной базе при чтении, либо попадет в очередь и будет повторено.
+    @Scheduled(initialDelay = 0, fixedDelayString = "${search.index.rebuildIntervalMs}")
+    public synchronized void rebuild() {
+        pending = new ConcurrentLinkedQueue<>();
+        try {
+            SearchIndex rebuilt = new SearchIndex();
+            service.forEachEmployeeFromPrimary(rebuilt::add);
+            lock.writeLock().lock();
+            try {
+                for (EmployeeChangedEvent event : pending) {
+                    apply(rebuilt, event);
+                }
+                index = rebuilt;
+            } finally {
+                pending = null;
+                lock.writeLock().unlock();
+            }
+        } finally {
+            pending = null;
+        }
+    }
+
+    public int getDocumentCount() {
+        SearchIndex current = index;
+        return current == null ? 0 : current.getDocumentCount();
+    }
+
+    public long getMemoryBytes() {
+        SearchIndex current = index;
+        if (current == null) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            return current.estimateMemoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void apply(SearchIndex index, EmployeeChangedEvent event) {
+        if (event.getType() == EmployeeChangedEvent.Type.DELETED) {
+            index.remove(event.getId());
+        } else if (event.getEmployee() != null) {
+            index.add(event.getEmployee());
+        } else {
+            index.patch(event.getId(), event.getChanges());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.rest.service.search;
+
+import java.util.Arrays;
+
+// Отсортированный по возрастанию список int без упаковки в Integer - список документов
+// (posting list) индекса. Добавление в конец O(1), вставка и удаление в середине - сдвиг
+// хвоста массива, это нужно только при изменении уже проиндексированного работника.
+final class IntList {
+
+    private int[] values;
+    private int size;
+
+    IntList(int capacity) {
+        values = new int[Math.max(capacity, 4)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    void insert(int value) {
+        if (size == 0 || values[size - 1] < value) {
+            ensureCapacity();
+            values[size++] = value;
+            return;
+        }
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        ensureCapacity();
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+    }
+
+    void remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+        }
+    }
+
+    // Заменяет value на replacement, порядок списка при этом не должен измениться
+    void replace(int value, int replacement) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            values[index] = replacement;
+        }
+    }
+
+    // Индекс первого элемента, который не меньше value
+    int lowerBound(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1));
+        }
+    }
+}
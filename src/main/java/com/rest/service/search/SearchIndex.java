@@ -0,0 +1,443 @@
+package com.rest.service.search;
+
+import com.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Поисковый индекс работников в памяти. Поля работников хранятся по столбцам в массивах
+// примитивов, номер документа (slot) - индекс в этих массивах. Документы всегда лежат в
+// порядке id, поэтому slot растет вместе с id, работник ищется бинарным поиском, а страница
+// "id > after" начинается с бинарного поиска и заканчивается на limit + 1 найденном.
+// Обычно новый id больше всех остальных и документ добавляется в конец. Работник с меньшим
+// id (параллельные транзакции закоммитились не в порядке выдачи id) вставляется на свое
+// место: хвост массивов сдвигается, а документы хвоста перенумеровываются в своих списках.
+// Такие id почти всегда близки к концу, поэтому сдвиг короткий. Удаленный работник остается
+// на своем месте с пометкой deleted, и если id появится снова, займет то же место.
+// Для поиска подстроки в name и surname используется инвертированный индекс по триграммам:
+// для каждых трех подряд идущих символов (без учета регистра) хранится отсортированный
+// список документов. Строка дополняется слева двумя символами '^', поэтому триграммы
+// "^^a" и "^ab" находят работников, у которых имя или фамилия начинается с "a" или "ab".
+// Запрос из трех и более символов ищется как подстрока, из одного-двух - как префикс.
+// Берется самый короткий список из триграмм запроса, и каждый кандидат проверяется
+// сравнением строк. Для фильтра по отделу есть списки документов каждого отдела, для
+// фильтра только по зарплате - массив документов, отсортированный по зарплате.
+// Класс не потокобезопасен, доступ синхронизирует EmployeeSearchIndex.
+public class SearchIndex {
+
+    private static final char PAD = '^';
+
+    private static final class SalaryOrder {
+        final int[] salaries;
+        final int[] slots;
+
+        SalaryOrder(int[] salaries, int[] slots) {
+            this.salaries = salaries;
+            this.slots = slots;
+        }
+    }
+
+    private int[] ids = new int[16];
+    private int[] salaries = new int[16];
+    private int[] departments = new int[16];
+    private int[] versions = new int[16];
+    private String[] names = new String[16];
+    private String[] surnames = new String[16];
+    private final BitSet deleted = new BitSet();
+    private int size;
+    private int live;
+    private long stringBytes;
+
+    private final Map<Long, IntList> grams = new HashMap<>();
+    private final Map<String, Integer> departmentCodes = new HashMap<>();
+    private final List<String> departmentNames = new ArrayList<>();
+    private final List<IntList> departmentSlots = new ArrayList<>();
+    private volatile SalaryOrder salaryOrder;
+
+    // Добавляет работника или заменяет уже проиндексированного с тем же id
+    public void add(Employee employee) {
+        int slot = Arrays.binarySearch(ids, 0, size, employee.getId());
+        if (slot >= 0 && !deleted.get(slot)) {
+            update(slot, employee.getName(), employee.getSurname(), employee.getDepartment(),
+                    employee.getSalary(), employee.getVersion());
+            return;
+        }
+        if (slot >= 0) {
+            deleted.clear(slot);
+        } else {
+            slot = -slot - 1;
+            ensureCapacity();
+            if (slot < size) {
+                shiftTail(slot);
+            }
+            size++;
+        }
+        fill(slot, employee);
+    }
+
+    private void fill(int slot, Employee employee) {
+        ids[slot] = employee.getId();
+        salaries[slot] = employee.getSalary();
+        versions[slot] = employee.getVersion();
+        names[slot] = employee.getName();
+        surnames[slot] = employee.getSurname();
+        departments[slot] = departmentCode(employee.getDepartment());
+        departmentSlots.get(departments[slot]).insert(slot);
+        for (long gram : grams(employee.getName(), employee.getSurname())) {
+            grams.computeIfAbsent(gram, key -> new IntList(4)).insert(slot);
+        }
+        stringBytes += stringSize(employee.getName()) + stringSize(employee.getSurname());
+        live++;
+        salaryOrder = null;
+    }
+
+    // Применяет частичное изменение (PATCH): changes содержит только измененные поля,
+    // версия строки при этом увеличивается на единицу, как и в базе.
+    public void patch(int id, Map<String, Object> changes) {
+        int slot = find(id);
+        if (slot < 0) {
+            return;
+        }
+        update(slot,
+                changes.containsKey("name") ? (String) changes.get("name") : names[slot],
+                changes.containsKey("surname") ? (String) changes.get("surname") : surnames[slot],
+                changes.containsKey("department") ? (String) changes.get("department")
+                        : departmentNames.get(departments[slot]),
+                changes.containsKey("salary") ? (Integer) changes.get("salary") : salaries[slot],
+                versions[slot] + 1);
+    }
+
+    public void remove(int id) {
+        int slot = find(id);
+        if (slot < 0) {
+            return;
+        }
+        for (long gram : grams(names[slot], surnames[slot])) {
+            IntList list = grams.get(gram);
+            if (list != null) {
+                list.remove(slot);
+            }
+        }
+        departmentSlots.get(departments[slot]).remove(slot);
+        stringBytes -= stringSize(names[slot]) + stringSize(surnames[slot]);
+        names[slot] = null;
+        surnames[slot] = null;
+        deleted.set(slot);
+        live--;
+    }
+
+    // Возвращает до limit + 1 работников с id больше afterId, подходящих под все заданные
+    // условия, в порядке возрастания id. Лишний работник нужен вызывающему, чтобы понять,
+    // есть ли следующая страница. Пустые условия (null) не проверяются.
+    public List<Employee> search(String query, String department, Integer minSalary, Integer maxSalary,
+                                 int afterId, int limit) {
+        List<Employee> result = new ArrayList<>();
+        String text = query == null || query.trim().isEmpty() ? null : query.trim();
+        int departmentCode = -1;
+        if (department != null) {
+            Integer code = departmentCodes.get(department);
+            if (code == null) {
+                return result;
+            }
+            departmentCode = code;
+        }
+        int min = minSalary == null ? Integer.MIN_VALUE : minSalary;
+        int max = maxSalary == null ? Integer.MAX_VALUE : maxSalary;
+        boolean prefix = text != null && text.length() < 3;
+
+        IntList candidates = null;
+        if (text != null) {
+            for (long gram : queryGrams(text)) {
+                IntList list = grams.get(gram);
+                if (list == null || list.size() == 0) {
+                    return result;
+                }
+                if (candidates == null || list.size() < candidates.size()) {
+                    candidates = list;
+                }
+            }
+        } else if (departmentCode >= 0) {
+            candidates = departmentSlots.get(departmentCode);
+        }
+
+        int wanted = limit + 1;
+        int startSlot = firstSlotAfter(afterId);
+        if (candidates != null) {
+            for (int i = candidates.lowerBound(startSlot); i < candidates.size() && result.size() < wanted; i++) {
+                collect(candidates.get(i), text, prefix, departmentCode, min, max, afterId, result);
+            }
+        } else if (minSalary != null || maxSalary != null) {
+            int[] slots = slotsWithSalary(min, max);
+            if (slots == null) {
+                for (int slot = startSlot; slot < size && result.size() < wanted; slot++) {
+                    collect(slot, null, false, -1, min, max, afterId, result);
+                }
+            } else {
+                int from = Arrays.binarySearch(slots, startSlot);
+                for (int i = from >= 0 ? from : -from - 1; i < slots.length && result.size() < wanted; i++) {
+                    collect(slots[i], null, false, -1, min, max, afterId, result);
+                }
+            }
+        } else {
+            for (int slot = startSlot; slot < size && result.size() < wanted; slot++) {
+                collect(slot, null, false, -1, min, max, afterId, result);
+            }
+        }
+        return result;
+    }
+
+    public int getDocumentCount() {
+        return live;
+    }
+
+    // Приблизительный объем памяти индекса в байтах для 64-битной JVM со сжатыми ссылками:
+    // массивы столбцов, строки имен и фамилий (считаются однобайтовыми, как Latin-1),
+    // списки документов и записи HashMap для триграмм и отделов.
+    public long estimateMemoryBytes() {
+        long bytes = (long) ids.length * (4 * 4 + 2 * 4) + 6 * 16 + deleted.size() / 8;
+        bytes += stringBytes;
+        for (IntList list : grams.values()) {
+            bytes += 16 + 16 + 4L * list.capacity() + 48;
+        }
+        for (IntList list : departmentSlots) {
+            bytes += 16 + 16 + 4L * list.capacity() + 48;
+        }
+        SalaryOrder order = salaryOrder;
+        if (order != null) {
+            bytes += 8L * order.slots.length;
+        }
+        return bytes;
+    }
+
+    private void collect(int slot, String text, boolean prefix, int departmentCode, int min, int max,
+                         int afterId, List<Employee> result) {
+        if (deleted.get(slot) || ids[slot] <= afterId
+                || (departmentCode >= 0 && departments[slot] != departmentCode)
+                || salaries[slot] < min || salaries[slot] > max) {
+            return;
+        }
+        if (text != null && !(prefix
+                ? startsWithIgnoreCase(names[slot], text) || startsWithIgnoreCase(surnames[slot], text)
+                : containsIgnoreCase(names[slot], text) || containsIgnoreCase(surnames[slot], text))) {
+            return;
+        }
+        Employee employee = new Employee(ids[slot], names[slot], surnames[slot],
+                departmentNames.get(departments[slot]), salaries[slot]);
+        employee.setVersion(versions[slot]);
+        result.add(employee);
+    }
+
+    private void update(int slot, String name, String surname, String department, int salary, int version) {
+        Set<Long> oldGrams = toSet(grams(names[slot], surnames[slot]));
+        Set<Long> newGrams = toSet(grams(name, surname));
+        for (Long gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                grams.get(gram).remove(slot);
+            }
+        }
+        for (Long gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                grams.computeIfAbsent(gram, key -> new IntList(4)).insert(slot);
+            }
+        }
+        int code = departmentCode(department);
+        if (code != departments[slot]) {
+            departmentSlots.get(departments[slot]).remove(slot);
+            departmentSlots.get(code).insert(slot);
+            departments[slot] = code;
+        }
+        if (salary != salaries[slot]) {
+            salaries[slot] = salary;
+            salaryOrder = null;
+        }
+        stringBytes += stringSize(name) + stringSize(surname) - stringSize(names[slot]) - stringSize(surnames[slot]);
+        names[slot] = name;
+        surnames[slot] = surname;
+        versions[slot] = version;
+    }
+
+    private int find(int id) {
+        int slot = Arrays.binarySearch(ids, 0, size, id);
+        return slot >= 0 && !deleted.get(slot) ? slot : -1;
+    }
+
+    // Освобождает slot для вставки: документы от slot до конца сдвигаются на один вправо.
+    // Перенумерация идет с конца, поэтому в каждом списке номер slot + 1 уже свободен, когда
+    // в него превращается slot, и список остается отсортированным.
+    private void shiftTail(int slot) {
+        for (int moved = size - 1; moved >= slot; moved--) {
+            if (deleted.get(moved)) {
+                deleted.clear(moved);
+                deleted.set(moved + 1);
+            } else {
+                for (Long gram : toSet(grams(names[moved], surnames[moved]))) {
+                    grams.get(gram).replace(moved, moved + 1);
+                }
+                departmentSlots.get(departments[moved]).replace(moved, moved + 1);
+            }
+        }
+        int tail = size - slot;
+        System.arraycopy(ids, slot, ids, slot + 1, tail);
+        System.arraycopy(salaries, slot, salaries, slot + 1, tail);
+        System.arraycopy(departments, slot, departments, slot + 1, tail);
+        System.arraycopy(versions, slot, versions, slot + 1, tail);
+        System.arraycopy(names, slot, names, slot + 1, tail);
+        System.arraycopy(surnames, slot, surnames, slot + 1, tail);
+        salaryOrder = null;
+    }
+
+    private int firstSlotAfter(int afterId) {
+        int slot = Arrays.binarySearch(ids, 0, size, afterId);
+        return slot >= 0 ? slot + 1 : -slot - 1;
+    }
+
+    // Документы с зарплатой в диапазоне, отсортированные по slot. Если таких документов
+    // больше восьмой части индекса, выгоднее просто пройти все документы, тогда null.
+    private int[] slotsWithSalary(int min, int max) {
+        SalaryOrder order = salaryOrder();
+        int from = lowerBound(order.salaries, min);
+        int to = max == Integer.MAX_VALUE ? order.salaries.length : lowerBound(order.salaries, max + 1);
+        if (to <= from || (long) (to - from) * 8 > live) {
+            return to <= from ? new int[0] : null;
+        }
+        int[] slots = Arrays.copyOfRange(order.slots, from, to);
+        Arrays.sort(slots);
+        return slots;
+    }
+
+    // Порядок по зарплате строится при первом запросе после изменения зарплат. Поиск идет
+    // под блокировкой чтения, поэтому параллельные запросы строят его под своим монитором.
+    private SalaryOrder salaryOrder() {
+        SalaryOrder order = salaryOrder;
+        if (order != null) {
+            return order;
+        }
+        synchronized (grams) {
+            order = salaryOrder;
+            if (order == null) {
+                long[] packed = new long[live];
+                int count = 0;
+                for (int slot = 0; slot < size; slot++) {
+                    if (!deleted.get(slot)) {
+                        packed[count++] = ((long) salaries[slot] << 32) | slot;
+                    }
+                }
+                Arrays.sort(packed, 0, count);
+                int[] sortedSalaries = new int[count];
+                int[] slots = new int[count];
+                for (int i = 0; i < count; i++) {
+                    sortedSalaries[i] = (int) (packed[i] >> 32);
+                    slots[i] = (int) packed[i];
+                }
+                order = new SalaryOrder(sortedSalaries, slots);
+                salaryOrder = order;
+            }
+        }
+        return order;
+    }
+
+    private int departmentCode(String department) {
+        Integer code = departmentCodes.get(department);
+        if (code == null) {
+            code = departmentNames.size();
+            departmentCodes.put(department, code);
+            departmentNames.add(department);
+            departmentSlots.add(new IntList(16));
+        }
+        return code;
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            departments = Arrays.copyOf(departments, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            names = Arrays.copyOf(names, capacity);
+            surnames = Arrays.copyOf(surnames, capacity);
+        }
+    }
+
+    private static long[] grams(String name, String surname) {
+        long[] first = paddedGrams(name);
+        long[] second = paddedGrams(surname);
+        long[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+
+    private static long[] paddedGrams(String value) {
+        if (value == null || value.isEmpty()) {
+            return new long[0];
+        }
+        return gramsOf(PAD + "" + PAD + value);
+    }
+
+    private static long[] queryGrams(String text) {
+        if (text.length() >= 3) {
+            return gramsOf(text);
+        }
+        String padded = PAD + "" + PAD + text;
+        return new long[]{gram(padded, padded.length() - 3)};
+    }
+
+    private static long[] gramsOf(String value) {
+        long[] result = new long[Math.max(0, value.length() - 2)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = gram(value, i);
+        }
+        return result;
+    }
+
+    private static long gram(String value, int start) {
+        return ((long) Character.toLowerCase(value.charAt(start)) << 32)
+                | ((long) Character.toLowerCase(value.charAt(start + 1)) << 16)
+                | Character.toLowerCase(value.charAt(start + 2));
+    }
+
+    private static Set<Long> toSet(long[] values) {
+        Set<Long> set = new HashSet<>(values.length * 2);
+        for (long value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    private static int lowerBound(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && sorted[index - 1] == value) {
+            index--;
+        }
+        return index;
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value != null && value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static boolean containsIgnoreCase(String value, String text) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i + text.length() <= value.length(); i++) {
+            if (value.regionMatches(true, i, text, 0, text.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long stringSize(String value) {
+        return value == null ? 0 : 24 + ((16 + value.length() + 7) & ~7);
+    }
+}
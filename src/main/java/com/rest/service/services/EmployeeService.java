@@ -1,16 +1,52 @@
 package com.rest.service.services;
 
 import com.rest.entity.Employee;
+import com.rest.service.dto.DepartmentSalaryCount;
+import com.rest.service.dto.EmployeeFieldsPage;
+import com.rest.service.dto.EmployeeLookupResult;
+import com.rest.service.dto.EmployeePage;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public interface EmployeeService {
 
     public List<Employee> getAllEmployees();
 
+    public EmployeePage getEmployeesPage(int afterId, int limit);
+
+    public EmployeeFieldsPage getEmployeeFieldsPage(List<String> fields, int afterId, int limit);
+
+    public Map<String, Object> getEmployeeFields(List<String> fields, int id);
+
+    public void forEachEmployee(Consumer<Employee> action);
+
+    public void forEachEmployee(String department, Consumer<Employee> action);
+
+    public void forEachEmployeeFromPrimary(Consumer<Employee> action);
+
+    public void forEachEmployeeId(IntConsumer action);
+
+    public String getEmployeesChangeMarker();
+
+    public List<DepartmentSalaryCount> getSalaryDistribution();
+
     public void saveEmployee(Employee employee);
 
+    public void saveAll(List<Employee> employees);
+
+    public boolean overwriteEmployee(Employee employee);
+
     public Employee getEmployee(int id);
 
-    void deleteEmployee(int id);
+    public EmployeeLookupResult getEmployees(Collection<Integer> ids);
+
+    public int patchEmployee(int id, Map<String, Object> patch);
+
+    int deleteEmployee(int id);
+
+    int deleteEmployees(Collection<Integer> ids);
 }
@@ -2,37 +2,232 @@ package com.rest.service.services;
 
 import com.rest.entity.Employee;
 import com.rest.service.DAO.EmployeeDAO;
+import com.rest.service.changes.EmployeeChangeMarker;
+import com.rest.service.coalescing.ReadCoalescer;
+import com.rest.service.dto.DepartmentSalaryCount;
+import com.rest.service.dto.EmployeeFieldsPage;
+import com.rest.service.dto.EmployeeLookupResult;
+import com.rest.service.dto.EmployeePage;
+import com.rest.service.dto.SalaryRecord;
+import com.rest.service.events.EmployeeChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 @Service
 public class EmployeeServiceImpl implements EmployeeService {
+
+    private static final List<String> TEXT_FIELDS = Arrays.asList("name", "surname", "department");
+
     @Autowired
     private EmployeeDAO employeeDAO;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private ReadCoalescer readCoalescer;
+    @Autowired
+    private EmployeeChangeMarker changeMarker;
     @Override
-    @Transactional
     public List<Employee> getAllEmployees() {
-        return employeeDAO.getAllEmployees();
+        return readCoalescer.list("all", employeeDAO::getAllEmployees);
+    }
+
+    @Override
+    public EmployeePage getEmployeesPage(int afterId, int limit) {
+        List<Employee> employees = readCoalescer.list(Arrays.asList("page", afterId, limit),
+                () -> employeeDAO.getEmployeesAfter(afterId, limit + 1));
+        if (employees.size() <= limit) {
+            return new EmployeePage(employees, null);
+        }
+        employees = new ArrayList<>(employees.subList(0, limit));
+        return new EmployeePage(employees, employees.get(limit - 1).getId());
+    }
+
+    @Override
+    public EmployeeFieldsPage getEmployeeFieldsPage(List<String> fields, int afterId, int limit) {
+        List<String> distinctFields = new ArrayList<>(new LinkedHashSet<>(fields));
+        List<Map<String, Object>> employees = readCoalescer.list(Arrays.asList("fields", distinctFields, afterId, limit),
+                () -> employeeDAO.getEmployeeFieldsAfter(distinctFields, afterId, limit + 1));
+        if (employees.size() <= limit) {
+            return new EmployeeFieldsPage(employees, null);
+        }
+        employees = new ArrayList<>(employees.subList(0, limit));
+        return new EmployeeFieldsPage(employees, (Integer) employees.get(limit - 1).get("id"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getEmployeeFields(List<String> fields, int id) {
+        return employeeDAO.getEmployeeFields(new LinkedHashSet<>(fields), id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachEmployee(Consumer<Employee> action) {
+        employeeDAO.forEachEmployee(action);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachEmployee(String department, Consumer<Employee> action) {
+        employeeDAO.forEachEmployee(department, action);
+    }
+
+    @Override
+    @Transactional
+    public void forEachEmployeeFromPrimary(Consumer<Employee> action) {
+        employeeDAO.forEachEmployee(action);
+    }
+
+    @Override
+    @Transactional
+    public void forEachEmployeeId(IntConsumer action) {
+        employeeDAO.forEachEmployeeId(action);
+    }
+
+    @Override
+    public String getEmployeesChangeMarker() {
+        return changeMarker.getMarker();
+    }
+
+    @Override
+    @Transactional
+    public List<DepartmentSalaryCount> getSalaryDistribution() {
+        return employeeDAO.getSalaryDistribution();
     }
 
     @Override
     @Transactional
     public void saveEmployee(Employee employee) {
+        SalaryRecord previous = employee.getId() == 0 ? null : previousRecord(employee.getId());
         employeeDAO.saveEmployee(employee);
+        eventPublisher.publishEvent(EmployeeChangedEvent.saved(employee, previous, previous == null));
     }
 
     @Override
     @Transactional
+    public void saveAll(List<Employee> employees) {
+        List<Integer> existingIds = new ArrayList<>();
+        for (Employee employee : employees) {
+            if (employee.getId() != 0) {
+                existingIds.add(employee.getId());
+            }
+        }
+        Map<Integer, SalaryRecord> previous = new HashMap<>();
+        if (!existingIds.isEmpty()) {
+            for (SalaryRecord record : employeeDAO.getSalaryRecords(existingIds)) {
+                previous.put(record.getId(), record);
+            }
+        }
+        employeeDAO.saveAll(employees);
+        for (Employee employee : employees) {
+            SalaryRecord record = previous.get(employee.getId());
+            eventPublisher.publishEvent(EmployeeChangedEvent.saved(employee, record, record == null));
+        }
+    }
+
+    // Запись без проверки версии из запроса (last write wins): работник получает текущую версию
+    // строки из основной базы и записывается поверх нее. false - работника уже нет.
+    @Override
+    @Transactional
+    public boolean overwriteEmployee(Employee employee) {
+        Map<String, Object> current = employeeDAO.getEmployeeFields(
+                Collections.singletonList("version"), employee.getId());
+        if (current == null) {
+            return false;
+        }
+        employee.setVersion((Integer) current.get("version"));
+        saveEmployee(employee);
+        return true;
+    }
+
+    @Override
     public Employee getEmployee(int id) {
-        return employeeDAO.getEmployee(id);
+        return readCoalescer.employee(id, () -> employeeDAO.getEmployee(id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeeLookupResult getEmployees(Collection<Integer> ids) {
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Employee> loaded = employeeDAO.getEmployees(distinctIds);
+        List<Employee> employees = new ArrayList<>(distinctIds.size());
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < distinctIds.size(); i++) {
+            Employee employee = loaded.get(i);
+            if (employee == null) {
+                missing.add(distinctIds.get(i));
+            } else {
+                employees.add(employee);
+            }
+        }
+        return new EmployeeLookupResult(employees, missing);
+    }
+
+    @Override
+    @Transactional
+    public int patchEmployee(int id, Map<String, Object> patch) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Patch must contain at least one field");
+        }
+        if (patch.containsKey("salary") && !(patch.get("salary") instanceof Integer)) {
+            throw new IllegalArgumentException("Field salary must be an integer");
+        }
+        for (String field : TEXT_FIELDS) {
+            if (patch.get(field) != null && !(patch.get(field) instanceof String)) {
+                throw new IllegalArgumentException("Field " + field + " must be a string or null");
+            }
+        }
+        SalaryRecord previous = patch.containsKey("department") || patch.containsKey("salary")
+                ? previousRecord(id) : null;
+        int updated = employeeDAO.updateEmployee(id, patch);
+        if (updated > 0) {
+            eventPublisher.publishEvent(EmployeeChangedEvent.patched(id, patch, previous));
+        }
+        return updated;
     }
 
     @Override
     @Transactional
-    public void deleteEmployee(int id) {
-        employeeDAO.deleteEmployee(id);
+    public int deleteEmployee(int id) {
+        SalaryRecord previous = previousRecord(id);
+        int deleted = employeeDAO.deleteEmployee(id);
+        if (deleted > 0 && previous != null) {
+            eventPublisher.publishEvent(EmployeeChangedEvent.deleted(previous));
+        }
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public int deleteEmployees(Collection<Integer> ids) {
+        List<SalaryRecord> previous = employeeDAO.getSalaryRecords(ids);
+        int deleted = employeeDAO.deleteEmployees(ids);
+        for (SalaryRecord record : previous) {
+            eventPublisher.publishEvent(EmployeeChangedEvent.deleted(record));
+        }
+        return deleted;
+    }
+
+    // Отдел и зарплата работника до изменения для DepartmentStatistics. Читаются обычным
+    // select без блокировки строки: статистика - только приблизительная витрина, и ради нее
+    // писатели одной строки не должны ждать друг друга. Два одновременных изменения одного
+    // работника могут прочитать одни и те же старые значения, такое расхождение исправит
+    // сверка DepartmentStatistics. Читаем только там, где событию нужны старые значения.
+    private SalaryRecord previousRecord(int id) {
+        List<SalaryRecord> records = employeeDAO.getSalaryRecords(Collections.singletonList(id));
+        return records.isEmpty() ? null : records.get(0);
     }
 }
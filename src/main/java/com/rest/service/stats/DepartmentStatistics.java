@@ -0,0 +1,177 @@
+package com.rest.service.stats;
+
+import com.rest.service.dto.DepartmentSalaryCount;
+import com.rest.service.dto.DepartmentStats;
+import com.rest.service.dto.SalaryRecord;
+import com.rest.service.events.EmployeeChangedEvent;
+import com.rest.service.services.EmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Статистика зарплат по отделам, которая хранится в памяти и обновляется по событиям
+// EmployeeChangedEvent после коммита транзакции. Запрос статистики стоит O(отделов) и не
+// трогает базу. Для каждого отдела хранятся количество, сумма и счетчики работников по каждой
+// зарплате (TreeMap), поэтому min и max остаются точными и после удаления работника.
+// Таблица целиком строится заново при первом запросе и затем раз в
+// department.stats.reconcileIntervalMs миллисекунд: так исправляется расхождение, если
+// какое-то изменение прошло мимо сервиса. Пока идет перестроение, события копятся в очереди
+// и повторяются на новой таблице перед ее публикацией. Событие транзакции, закоммиченной
+// прямо перед чтением из базы, может учесться дважды, это исправит следующая сверка.
+// Старые отдел и зарплату сервис читает без блокировки строки, поэтому два одновременных
+// изменения одного работника могут вычесть одну и ту же старую зарплату дважды - это тоже
+// исправляет сверка. Слушатели двух транзакций могут выполниться не в порядке коммитов,
+// поэтому счетчики складываются в любом порядке: удаление из еще не появившейся зарплаты
+// временно уводит ее счетчик в минус, а min и max берутся только по зарплатам
+// с положительным счетчиком.
+@Component
+public class DepartmentStatistics {
+
+    // ConcurrentHashMap не хранит null ключи, работники без отдела учитываются под этим ключом
+    private static final String NO_DEPARTMENT = "";
+
+    private static final class Aggregate {
+        private long count;
+        private long sum;
+        private final TreeMap<Integer, long[]> salaries = new TreeMap<>();
+
+        synchronized void add(int salary, long employees) {
+            count += employees;
+            sum += salary * employees;
+            long[] counter = salaries.computeIfAbsent(salary, key -> new long[1]);
+            counter[0] += employees;
+            if (counter[0] == 0) {
+                salaries.remove(salary);
+            }
+        }
+
+        synchronized void remove(int salary) {
+            add(salary, -1);
+        }
+
+        synchronized DepartmentStats snapshot(String department) {
+            if (count <= 0) {
+                return null;
+            }
+            return new DepartmentStats(NO_DEPARTMENT.equals(department) ? null : department,
+                    count, sum, firstPresent(salaries), firstPresent(salaries.descendingMap()));
+        }
+
+        private static int firstPresent(Map<Integer, long[]> salaries) {
+            for (Map.Entry<Integer, long[]> entry : salaries.entrySet()) {
+                if (entry.getValue()[0] > 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("No salaries in a non-empty department");
+        }
+    }
+
+    @Autowired
+    private EmployeeService service;
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<String, Aggregate> departments;
+    private volatile Queue<EmployeeChangedEvent> pending;
+
+    @TransactionalEventListener
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        swapLock.readLock().lock();
+        try {
+            Queue<EmployeeChangedEvent> queue = pending;
+            if (queue != null) {
+                queue.add(event);
+            }
+            Map<String, Aggregate> current = departments;
+            if (current != null) {
+                apply(current, event);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public List<DepartmentStats> getStats() {
+        Map<String, Aggregate> current = departments;
+        if (current == null) {
+            reconcile();
+            current = departments;
+        }
+        List<DepartmentStats> stats = new ArrayList<>(current.size());
+        for (String department : new TreeMap<>(current).keySet()) {
+            DepartmentStats snapshot = current.get(department).snapshot(department);
+            if (snapshot != null) {
+                stats.add(snapshot);
+            }
+        }
+        return stats;
+    }
+
+    // Распределение читается в обычной (не readOnly) транзакции, то есть из основной базы:
+    // реплика может отставать, а события приходят по коммитам в основной базе.
+    @Scheduled(initialDelayString = "${department.stats.reconcileIntervalMs}",
+            fixedDelayString = "${department.stats.reconcileIntervalMs}")
+    public synchronized void reconcile() {
+        pending = new ConcurrentLinkedQueue<>();
+        try {
+            Map<String, Aggregate> rebuilt = new ConcurrentHashMap<>();
+            for (DepartmentSalaryCount group : service.getSalaryDistribution()) {
+                aggregate(rebuilt, group.getDepartment()).add(group.getSalary(), group.getCount());
+            }
+            swapLock.writeLock().lock();
+            try {
+                for (EmployeeChangedEvent event : pending) {
+                    apply(rebuilt, event);
+                }
+                departments = rebuilt;
+            } finally {
+                pending = null;
+                swapLock.writeLock().unlock();
+            }
+        } finally {
+            pending = null;
+        }
+    }
+
+    private static void apply(Map<String, Aggregate> departments, EmployeeChangedEvent event) {
+        SalaryRecord previous = event.getPrevious();
+        if (event.getType() == EmployeeChangedEvent.Type.DELETED) {
+            remove(departments, previous);
+        } else if (event.getEmployee() != null) {
+            remove(departments, previous);
+            aggregate(departments, event.getEmployee().getDepartment()).add(event.getEmployee().getSalary(), 1);
+        } else if (previous != null) {
+            Map<String, Object> changes = event.getChanges();
+            String department = changes.containsKey("department")
+                    ? (String) changes.get("department") : previous.getDepartment();
+            int salary = changes.containsKey("salary") ? (Integer) changes.get("salary") : previous.getSalary();
+            remove(departments, previous);
+            aggregate(departments, department).add(salary, 1);
+        }
+    }
+
+    private static void remove(Map<String, Aggregate> departments, SalaryRecord record) {
+        if (record != null) {
+            aggregate(departments, record.getDepartment()).remove(record.getSalary());
+        }
+    }
+
+    private static Aggregate aggregate(Map<String, Aggregate> departments, String department) {
+        return departments.computeIfAbsent(key(department), key -> new Aggregate());
+    }
+
+    private static String key(String department) {
+        return department == null ? NO_DEPARTMENT : department;
+    }
+}
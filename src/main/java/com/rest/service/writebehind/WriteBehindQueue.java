@@ -0,0 +1,238 @@
+package com.rest.service.writebehind;
+
+import com.rest.entity.Employee;
+import com.rest.service.dto.FlushResult;
+import com.rest.service.dto.WriteBehindStatus;
+import com.rest.service.metrics.LatencyHistogram;
+import com.rest.service.metrics.MetricsRegistry;
+import com.rest.service.services.EmployeeService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Отложенная запись (write-behind) для частых PUT одних и тех же работников. Включается
+// свойством write.behind.enabled, и даже тогда клиент сам выбирает ее заголовком
+// Prefer: respond-async, остальные PUT (и PUT с If-Match) записываются сразу, как раньше.
+// Контракт надежности:
+// - принятое изменение (ответ 202) хранится только в памяти процесса, при падении процесса
+//   до записи в базу оно теряется; при нормальной остановке очередь записывается;
+// - изменения одного работника сливаются, в базу попадает последнее принятое;
+// - отложенная запись не проверяет версию из запроса (last write wins): если строку успели
+//   изменить, изменение записывается поверх текущей версии (для проверки версии есть If-Match,
+//   с ним запись синхронная);
+// - изменение попадает в базу не позже чем через write.behind.flushIntervalMs, или раньше,
+//   когда в очереди набралось write.behind.batchSize работников; POST/api/employees/flush
+//   записывает очередь сразу и возвращает результат;
+// - до записи чтения возвращают старые данные;
+// - изменение, которое не удалось записать (работник удален, ошибка базы), отбрасывается
+//   и учитывается в write_behind_updates_total{result="failed"}; последние
+//   write.behind.maxReportedDrops отброшенных id с причиной хранятся, и клиент после 202
+//   узнает о потере из GET/api/employees/{id}/write-behind;
+// - если в очереди уже write.behind.capacity разных работников, новый работник не принимается
+//   и клиент получает 503, изменения уже стоящих в очереди работников принимаются всегда.
+// Запись идет порциями по batchSize работников, каждая порция - одна транзакция saveAll
+// с JDBC batching. Если порция не записалась (чаще всего из-за изменившейся версии), ее
+// работники записываются по одному через overwriteEmployee поверх текущей версии строки.
+@Component
+public class WriteBehindQueue implements DisposableBean {
+
+    @Autowired
+    private EmployeeService service;
+
+    @Autowired
+    private MetricsRegistry registry;
+
+    @Value("${write.behind.enabled}")
+    private boolean enabled;
+
+    @Value("${write.behind.capacity}")
+    private int capacity;
+
+    @Value("${write.behind.batchSize}")
+    private int batchSize;
+
+    @Value("${write.behind.flushIntervalMs}")
+    private long flushIntervalMs;
+
+    @Value("${write.behind.maxReportedDrops}")
+    private int maxReportedDrops;
+
+    private final ConcurrentMap<Integer, Employee> pending = new ConcurrentHashMap<>();
+    private Map<Integer, WriteBehindStatus> drops;
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private LatencyHistogram flushLatency;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        drops = Collections.synchronizedMap(new LinkedHashMap<Integer, WriteBehindStatus>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, WriteBehindStatus> eldest) {
+                return size() > maxReportedDrops;
+            }
+        });
+        String help = "Updates handled by the write-behind queue";
+        registry.counter("write_behind_updates_total", help, accepted, "result", "accepted");
+        registry.counter("write_behind_updates_total", help, coalesced, "result", "coalesced");
+        registry.counter("write_behind_updates_total", help, rejected, "result", "rejected");
+        registry.counter("write_behind_updates_total", help, flushed, "result", "flushed");
+        registry.counter("write_behind_updates_total", help, failed, "result", "failed");
+        registry.gauge("write_behind_queue_depth", "Employees with an update waiting in the write-behind queue",
+                depth::get);
+        flushLatency = registry.histogram("write_behind_flush_seconds", "Time to write one write-behind batch");
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "write-behind-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Ставит изменение существующего работника в очередь. Новый работник (id = 0) должен
+    // получить id сразу, поэтому такие запросы сюда не попадают.
+    public void submit(Employee employee) {
+        if (employee.getId() == 0) {
+            throw new IllegalArgumentException("Only existing employees can be updated with write-behind");
+        }
+        pending.compute(employee.getId(), (id, previous) -> {
+            if (previous == null) {
+                if (depth.incrementAndGet() > capacity) {
+                    depth.decrementAndGet();
+                    rejected.increment();
+                    throw new RejectedExecutionException("Write-behind queue is full");
+                }
+            } else {
+                coalesced.increment();
+            }
+            return employee;
+        });
+        drops.remove(employee.getId());
+        accepted.increment();
+        if (depth.get() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    public int getDepth() {
+        return depth.get();
+    }
+
+    public WriteBehindStatus getStatus(int id) {
+        if (pending.containsKey(id)) {
+            return new WriteBehindStatus(id, WriteBehindStatus.PENDING, null, null);
+        }
+        WriteBehindStatus dropped = drops.get(id);
+        return dropped != null ? dropped : new WriteBehindStatus(id, WriteBehindStatus.NONE, null, null);
+    }
+
+    // Записывает все, что сейчас в очереди. Вызывается фоновым потоком и эндпоинтом flush,
+    // одновременно идет только одна запись.
+    public synchronized FlushResult flush() {
+        flushRequested.set(false);
+        long start = System.nanoTime();
+        int written = 0;
+        int lost = 0;
+        List<Employee> batch = new ArrayList<>(batchSize);
+        Iterator<Integer> ids = pending.keySet().iterator();
+        while (ids.hasNext()) {
+            Employee employee = pending.remove(ids.next());
+            if (employee == null) {
+                continue;
+            }
+            depth.decrementAndGet();
+            batch.add(employee);
+            if (batch.size() == batchSize) {
+                int saved = write(batch);
+                written += saved;
+                lost += batch.size() - saved;
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            int saved = write(batch);
+            written += saved;
+            lost += batch.size() - saved;
+        }
+        return new FlushResult(written, lost, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public void destroy() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            flushRequested.set(false);
+        }
+    }
+
+    private int write(List<Employee> batch) {
+        long start = System.nanoTime();
+        try {
+            service.saveAll(batch);
+            flushed.add(batch.size());
+            return batch.size();
+        } catch (RuntimeException batchFailure) {
+            int saved = 0;
+            for (Employee employee : batch) {
+                try {
+                    if (service.overwriteEmployee(employee)) {
+                        saved++;
+                    } else {
+                        drop(employee.getId(), "Employee was deleted");
+                    }
+                } catch (RuntimeException e) {
+                    drop(employee.getId(), e.toString());
+                }
+            }
+            flushed.add(saved);
+            return saved;
+        } finally {
+            flushLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    // Новое изменение того же работника уже в очереди: оно заменяет отчет о потере
+    private void drop(int id, String reason) {
+        failed.increment();
+        if (!pending.containsKey(id)) {
+            drops.put(id, new WriteBehindStatus(id, WriteBehindStatus.DROPPED, reason, System.currentTimeMillis()));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.rest.configuration;
+
+import com.rest.entity.Employee;
+import com.rest.service.dto.EmployeeLookupResult;
+import com.rest.service.services.EmployeeService;
+import org.hibernate.SessionFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Маршрутизация между основной базой и репликой на настоящей конфигурации MyConfig и двух
+// разных базах H2 в памяти. В реплике заранее лежит работник, которого нет в основной базе,
+// поэтому по результату чтения видно, куда ушел запрос.
+public class ReadOnlyRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing_primary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final int REPLICA_ONLY_ID = 1000;
+
+    private static final String[] PROPERTIES = {"db.driver", "db.primary.url", "db.primary.user",
+            "db.primary.password", "db.replica.url", "db.replica.user", "db.replica.password",
+            "hibernate.dialect", "hibernate.show_sql", "hibernate.hbm2ddl.auto"};
+
+    private static AnnotationConfigWebApplicationContext context;
+    private static JdbcTemplate primary;
+    private static JdbcTemplate replica;
+
+    @BeforeClass
+    public static void startContext() {
+        primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("create table employees (id int primary key, department varchar(255), " +
+                "name varchar(255), salary int not null, surname varchar(255), version int not null)");
+        replica.update("insert into employees (id, name, surname, department, salary, version) " +
+                "values (?, 'Replica', 'Only', 'Replica', 100, 0)", REPLICA_ONLY_ID);
+
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.primary.url", PRIMARY_URL);
+        System.setProperty("db.primary.user", "sa");
+        System.setProperty("db.primary.password", "");
+        System.setProperty("db.replica.url", REPLICA_URL);
+        System.setProperty("db.replica.user", "sa");
+        System.setProperty("db.replica.password", "");
+        System.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("hibernate.show_sql", "false");
+        System.setProperty("hibernate.hbm2ddl.auto", "create");
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(MyConfig.class);
+        context.refresh();
+    }
+
+    @AfterClass
+    public static void stopContext() {
+        if (context != null) {
+            context.close();
+        }
+        for (String property : PROPERTIES) {
+            System.clearProperty(property);
+        }
+        replica.execute("drop table employees");
+    }
+
+    // Hibernate берет подключение в начале транзакции, до того как Spring выставит признак
+    // readOnly. Маршрутизатор должен стоять за LazyConnectionDataSourceProxy, тогда он выбирает
+    // базу только перед первым запросом, когда признак уже известен.
+    @Test
+    public void routerSitsBehindLazyConnectionProxy() {
+        DataSource dataSource = context.getBean(DataSource.class);
+        assertTrue(dataSource instanceof LazyConnectionDataSourceProxy);
+        assertTrue(((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource()
+                instanceof ReadOnlyRoutingDataSource);
+    }
+
+    @Test
+    public void readOnlyTransactionUsesReplicaConnection() {
+        assertTrue(connectionUrl(true).startsWith("jdbc:h2:mem:routing_replica"));
+    }
+
+    @Test
+    public void writeTransactionUsesPrimaryConnection() {
+        assertTrue(connectionUrl(false).startsWith("jdbc:h2:mem:routing_primary"));
+    }
+
+    @Test
+    public void serviceReadsFromReplicaAndWritesToPrimary() {
+        EmployeeService service = context.getBean(EmployeeService.class);
+        Employee employee = new Employee(0, "Primary", "Only", "Primary", 200);
+        service.saveEmployee(employee);
+
+        assertEquals(Integer.valueOf(1), primary.queryForObject(
+                "select count(*) from employees where id = ?", Integer.class, employee.getId()));
+        assertEquals(Integer.valueOf(0), replica.queryForObject(
+                "select count(*) from employees where id = ?", Integer.class, employee.getId()));
+
+        // Новый работник уже лежит в кэше второго уровня, поэтому с реплики читаем проекцию
+        // полей, которая в кэш не ходит
+        assertNull(service.getEmployeeFields(Collections.singletonList("name"), employee.getId()));
+        EmployeeLookupResult result = service.getEmployees(Collections.singletonList(REPLICA_ONLY_ID));
+        assertEquals(1, result.getEmployees().size());
+        assertEquals("Replica", result.getEmployees().get(0).getName());
+    }
+
+    private static String connectionUrl(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transaction.setReadOnly(readOnly);
+        SessionFactory sessionFactory = context.getBean(SessionFactory.class);
+        return transaction.execute(status -> sessionFactory.getCurrentSession()
+                .doReturningWork(connection -> connection.getMetaData().getURL()));
+    }
+}
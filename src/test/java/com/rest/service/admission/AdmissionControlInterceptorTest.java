@@ -0,0 +1,82 @@
+package com.rest.service.admission;
+
+import com.rest.service.metrics.MetricsRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdmissionControlInterceptorTest {
+
+    private ConcurrencyLimiter readBudget;
+    private ConcurrencyLimiter writeBudget;
+    private ConcurrencyLimiter bulkBudget;
+    private AdmissionControlInterceptor interceptor;
+
+    @Before
+    public void createInterceptor() {
+        readBudget = new ConcurrencyLimiter("read", 1, 100, 100, true);
+        writeBudget = new ConcurrencyLimiter("write", 1, 100, 100, true);
+        bulkBudget = new ConcurrencyLimiter("bulk", 1);
+        interceptor = new AdmissionControlInterceptor(new MetricsRegistry(), readBudget, writeBudget, bulkBudget,
+                Arrays.asList("/api/employees/export", "/api/employees/import"), 10, 1);
+    }
+
+    @Test
+    public void routesRequestsToReadWriteAndBulkBudgets() {
+        admit(request("GET", "/api/employees/{id}"));
+        admit(request("POST", "/api/employees/lookup"));
+        assertEquals(2, readBudget.getInFlight());
+
+        admit(request("POST", "/api/employees"));
+        assertEquals(1, writeBudget.getInFlight());
+
+        admit(request("GET", "/api/employees/export"));
+        assertEquals(1, bulkBudget.getInFlight());
+    }
+
+    @Test
+    public void streamingListIsBulk() {
+        MockHttpServletRequest request = request("GET", "/api/employees");
+        request.setParameter("stream", "true");
+
+        admit(request);
+
+        assertEquals(1, bulkBudget.getInFlight());
+        assertEquals(0, readBudget.getInFlight());
+    }
+
+    // Долгая выгрузка не считается медленным ответом для адаптивного бюджета чтения
+    @Test
+    public void slowBulkRequestDoesNotCutReadLimit() throws Exception {
+        MockHttpServletRequest request = request("GET", "/api/employees/export");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+        Thread.sleep(150);
+        interceptor.afterCompletion(request, response, null, null);
+
+        assertEquals(0, bulkBudget.getInFlight());
+        assertEquals(100, readBudget.getLimit());
+    }
+
+    @Test(expected = AdmissionRejectedException.class)
+    public void rejectsBulkRequestAboveBulkBudget() {
+        admit(request("GET", "/api/employees/export"));
+        admit(request("POST", "/api/employees/import"));
+    }
+
+    private void admit(MockHttpServletRequest request) {
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+    }
+
+    private static MockHttpServletRequest request(String method, String pattern) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+}
@@ -0,0 +1,122 @@
+package com.rest.service.admission;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    public void staticLimiterRejectsAboveLimitWithoutWaiting() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("static", 2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejections().sum());
+
+        limiter.release(SLOW, true);
+        assertEquals(2, limiter.getLimit());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMinLimitAboveMaxLimit() {
+        new ConcurrencyLimiter("broken", 10, 5, 100, true);
+    }
+
+    @Test
+    public void slowResponseMultipliesLimitByBackoff() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("adaptive", 1, 100, 100, true);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+
+        assertEquals(90, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void serverErrorMultipliesLimitByBackoff() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("adaptive", 1, 100, 100, true);
+
+        limiter.tryAcquire();
+        limiter.release(FAST, true);
+
+        assertEquals(90, limiter.getLimit());
+    }
+
+    @Test
+    public void limitDoesNotFallBelowMinLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("adaptive", 5, 100, 100, true);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, false);
+        }
+
+        assertEquals(5, limiter.getLimit());
+    }
+
+    // Предел растет на 1/limit за быстрый ответ, только пока занята хотя бы половина мест,
+    // и не выше maxLimit
+    @Test
+    public void fastResponsesUnderLoadRaiseLimitUpToMaxLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("adaptive", 1, 10, 100, true);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, false);
+        }
+        assertEquals(3, limiter.getLimit());
+
+        for (int i = 0; i < 200; i++) {
+            fillAndReleaseOneFast(limiter);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void fastResponsesWithoutLoadKeepLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("adaptive", 1, 100, 100, true);
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire();
+            limiter.release(FAST, false);
+        }
+
+        assertEquals(90, limiter.getLimit());
+    }
+
+    @Test
+    public void releaseWithoutMeasurementKeepsLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("adaptive", 1, 100, 100, true);
+
+        limiter.tryAcquire();
+        limiter.release(-1, true);
+
+        assertEquals(100, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private static void fillAndReleaseOneFast(ConcurrencyLimiter limiter) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        limiter.release(FAST, false);
+        for (int i = 1; i < acquired; i++) {
+            limiter.release(-1, false);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.rest.service.bulk;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CsvReaderTest {
+
+    @Test
+    public void readsPlainRecordsWithLfAndCrLf() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("a,b,c\r\n1,2,3\n,,\n"));
+
+        assertEquals(Arrays.asList("a", "b", "c"), csv.readRecord());
+        assertEquals(Arrays.asList("1", "2", "3"), csv.readRecord());
+        assertEquals(Arrays.asList("", "", ""), csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void readsLastRecordWithoutLineBreak() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("a,b\n1,2"));
+
+        csv.readRecord();
+        assertEquals(Arrays.asList("1", "2"), csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void readsQuotedFieldsWithCommasQuotesAndLineBreaks() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("\"Smith, John\",\"say \"\"hi\"\"\",\"two\r\nlines\"\n"));
+
+        assertEquals(Arrays.asList("Smith, John", "say \"hi\"", "two\r\nlines"), csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void quoteInsideUnquotedFieldIsKept() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("O\"Neil,x\n"));
+
+        assertEquals(Arrays.asList("O\"Neil", "x"), csv.readRecord());
+    }
+
+    @Test
+    public void reportsLineWhereRecordStarted() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("h\r\n\"multi\nline\"\r\nnext\n"));
+
+        csv.readRecord();
+        assertEquals(1, csv.getRecordLine());
+        csv.readRecord();
+        assertEquals(2, csv.getRecordLine());
+        assertEquals(Arrays.asList("next"), csv.readRecord());
+        assertEquals(4, csv.getRecordLine());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnterminatedQuotedField() throws IOException {
+        new CsvReader(new StringReader("a,\"open\n")).readRecord();
+    }
+
+    // Reader отдает по одному символу, поэтому кавычки и CRLF попадают на границу буфера
+    @Test
+    public void readsRecordsSplitAcrossReads() throws IOException {
+        CsvReader csv = new CsvReader(new OneCharReader("\"a\"\"b\",c\r\nd,e\r\n"));
+
+        assertEquals(Arrays.asList("a\"b", "c"), csv.readRecord());
+        assertEquals(Arrays.asList("d", "e"), csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void readsRecordsLongerThanBuffer() throws IOException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            value.append((char) ('a' + i % 26));
+        }
+        CsvReader csv = new CsvReader(new StringReader("1,\"" + value + "\"\n2,x\n"));
+
+        List<String> first = csv.readRecord();
+        assertEquals(value.toString(), first.get(1));
+        assertEquals(Arrays.asList("2", "x"), csv.readRecord());
+    }
+
+    private static final class OneCharReader extends Reader {
+        private final StringReader reader;
+
+        OneCharReader(String text) {
+            reader = new StringReader(text);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return reader.read(buffer, offset, Math.min(1, length));
+        }
+
+        @Override
+        public void close() {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.rest.service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rest.entity.Employee;
+import com.rest.service.dto.ImportResult;
+import com.rest.service.services.EmployeeService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Импорт с заглушкой EmployeeService: saveAll только запоминает порции и падает на порции,
+// в которой есть работник с фамилией "Fail"
+public class EmployeeImporterTest {
+
+    private final List<List<Employee>> savedChunks = new ArrayList<>();
+    private EmployeeImporter importer;
+
+    @Before
+    public void createImporter() {
+        EmployeeService service = (EmployeeService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EmployeeService.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("saveAll")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    @SuppressWarnings("unchecked")
+                    List<Employee> chunk = new ArrayList<>((List<Employee>) args[0]);
+                    for (Employee employee : chunk) {
+                        if ("Fail".equals(employee.getSurname())) {
+                            throw new IllegalStateException("save failed", new RuntimeException("duplicate key"));
+                        }
+                    }
+                    savedChunks.add(chunk);
+                    return null;
+                });
+        importer = new EmployeeImporter();
+        ReflectionTestUtils.setField(importer, "service", service);
+        ReflectionTestUtils.setField(importer, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(importer, "chunkSize", 2);
+        ReflectionTestUtils.setField(importer, "maxReportedErrors", 2);
+    }
+
+    @Test
+    public void importsCsvInChunks() throws IOException {
+        ImportResult result = importer.importCsv(new StringReader(
+                "\uFEFFName,Surname,Department,Salary,Extra\n" +
+                "Anna,Ivanova,IT,100,x\n" +
+                "\"Boris, Jr\",Petrov,HR,200,y\n" +
+                "\n" +
+                "Olga,Smirnova,IT,300,z\n"));
+
+        assertEquals(3, result.getRecords());
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getFailed());
+        assertEquals(2, savedChunks.size());
+        assertEquals(2, savedChunks.get(0).size());
+        assertEquals("Boris, Jr", savedChunks.get(0).get(1).getName());
+        assertEquals(300, savedChunks.get(1).get(0).getSalary());
+        assertEquals(0, savedChunks.get(1).get(0).getId());
+    }
+
+    @Test
+    public void readsOptionalIdAndVersionColumns() throws IOException {
+        importer.importCsv(new StringReader(
+                "id,name,surname,department,salary,version\n" +
+                "7,Anna,Ivanova,IT,100,3\n" +
+                ",New,Person,IT,100,\n"));
+
+        Employee updated = savedChunks.get(0).get(0);
+        assertEquals(7, updated.getId());
+        assertEquals(3, updated.getVersion());
+        Employee created = savedChunks.get(0).get(1);
+        assertEquals(0, created.getId());
+        assertEquals(0, created.getVersion());
+    }
+
+    @Test
+    public void rejectsBadRowsAndKeepsImporting() throws IOException {
+        ImportResult result = importer.importCsv(new StringReader(
+                "name,surname,department,salary\n" +
+                "Anna,Ivanova,IT,lots\n" +
+                "Boris,Petrov,HR\n" +
+                "Olga,Smirnova,IT,300\n"));
+
+        assertEquals(3, result.getRecords());
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(2, result.getErrors().get(0).getLine());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("id, version and salary must be integers"));
+        assertEquals(3, result.getErrors().get(1).getLine());
+        assertEquals("Expected 4 fields but found 3", result.getErrors().get(1).getMessage());
+    }
+
+    @Test
+    public void failedChunkIsReportedAtItsFirstLine() throws IOException {
+        ImportResult result = importer.importCsv(new StringReader(
+                "name,surname,department,salary\n" +
+                "Anna,Ivanova,IT,100\n" +
+                "Boris,Petrov,HR,200\n" +
+                "Olga,Fail,IT,300\n" +
+                "Ivan,Sidorov,IT,400\n" +
+                "Maria,Orlova,HR,500\n"));
+
+        assertEquals(5, result.getRecords());
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(4, result.getErrors().get(0).getLine());
+        assertEquals("Chunk of 2 records was not saved: duplicate key", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void truncatesReportedErrors() throws IOException {
+        ImportResult result = importer.importCsv(new StringReader(
+                "name,surname,department,salary\nA,B,C,x\nA,B,C,y\nA,B,C,z\n"));
+
+        assertEquals(3, result.getFailed());
+        assertEquals(2, result.getErrors().size());
+        assertTrue(result.isErrorsTruncated());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCsvWithoutRequiredColumn() throws IOException {
+        importer.importCsv(new StringReader("name,surname,salary\nAnna,Ivanova,100\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCsv() throws IOException {
+        importer.importCsv(new StringReader(""));
+    }
+
+    @Test
+    public void importsNdjsonAndRejectsMalformedLines() throws IOException {
+        ImportResult result = importer.importNdjson(new StringReader(
+                "{\"name\":\"Anna\",\"surname\":\"Ivanova\",\"department\":\"IT\",\"salary\":100}\n" +
+                "\n" +
+                "{\"name\":\"Boris\"} trailing\n" +
+                "{\"name\":\"Olga\",\"surname\":\"Smirnova\",\"department\":\"IT\",\"salary\":300}\n"));
+
+        assertEquals(3, result.getRecords());
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertFalse(result.isErrorsTruncated());
+        assertEquals("Olga", savedChunks.get(0).get(1).getName());
+    }
+}
@@ -0,0 +1,166 @@
+package com.rest.service.coalescing;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsWithSameKeyShareOneLoad() throws Exception {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Object value = new Object();
+
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            await(release);
+            return value;
+        }));
+        waitFor(() -> singleFlight.getInFlight() == 1);
+        List<Future<Object>> followers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            followers.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                loads.incrementAndGet();
+                return new Object();
+            })));
+        }
+        waitFor(() -> singleFlight.getJoined().sum() == CALLERS);
+        release.countDown();
+
+        assertSame(value, leader.get(5, TimeUnit.SECONDS));
+        for (Future<Object> follower : followers) {
+            assertSame(value, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, singleFlight.getLoads().sum());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    public void differentKeysLoadIndependently() throws Exception {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        Future<String> first = executor.submit(() -> singleFlight.execute("first", () -> {
+            bothStarted.countDown();
+            await(bothStarted);
+            return "first";
+        }));
+        Future<String> second = executor.submit(() -> singleFlight.execute("second", () -> {
+            bothStarted.countDown();
+            await(bothStarted);
+            return "second";
+        }));
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, singleFlight.getLoads().sum());
+        assertEquals(0, singleFlight.getJoined().sum());
+    }
+
+    // Загрузка не кэшируется: следующий вызов после завершения снова идет в загрузчик
+    @Test
+    public void completedLoadIsNotReused() {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(Integer.valueOf(1), singleFlight.execute("key", loads::incrementAndGet));
+        assertEquals(Integer.valueOf(2), singleFlight.execute("key", loads::incrementAndGet));
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    public void failureReachesEveryWaiterAndIsNotCached() throws Exception {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database is down");
+
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            await(release);
+            throw failure;
+        }));
+        waitFor(() -> singleFlight.getInFlight() == 1);
+        Future<Object> follower = executor.submit(() -> singleFlight.execute("key", Object::new));
+        waitFor(() -> singleFlight.getJoined().sum() == 1);
+        release.countDown();
+
+        assertSame(failure, cause(leader));
+        assertSame(failure, cause(follower));
+        assertEquals("loaded", singleFlight.execute("key", () -> "loaded"));
+    }
+
+    @Test
+    public void invalidateLetsNewCallerStartOwnLoad() throws Exception {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> stale = executor.submit(() -> singleFlight.execute("key", () -> {
+            await(release);
+            return "stale";
+        }));
+        waitFor(() -> singleFlight.getInFlight() == 1);
+        singleFlight.invalidate("key");
+
+        assertEquals("fresh", singleFlight.execute("key", () -> "fresh"));
+        release.countDown();
+        assertEquals("stale", stale.get(5, TimeUnit.SECONDS));
+        assertEquals(2, singleFlight.getLoads().sum());
+    }
+
+    private static Throwable cause(Future<?> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (TimeoutException e) {
+            fail("Load did not finish");
+        }
+        fail("Load did not fail");
+        return null;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not reached");
+            }
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.rest.service.existence;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IdBitmapTest {
+
+    @Test
+    public void addsAndRemovesIds() {
+        IdBitmap ids = new IdBitmap();
+        assertTrue(ids.add(7));
+        assertFalse(ids.add(7));
+        assertTrue(ids.add(1 << 20));
+
+        assertTrue(ids.contains(7));
+        assertTrue(ids.contains(1 << 20));
+        assertFalse(ids.contains(8));
+        assertFalse(ids.contains(-1));
+        assertFalse(ids.contains(Integer.MAX_VALUE));
+        assertEquals(2, ids.size());
+
+        assertTrue(ids.remove(7));
+        assertFalse(ids.remove(7));
+        assertFalse(ids.remove(-5));
+        assertFalse(ids.contains(7));
+        assertEquals(1, ids.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeIds() {
+        new IdBitmap().add(-1);
+    }
+
+    // Блок из 65536 id переходит из массива в битовую карту после 4096 значений и обратно,
+    // когда значений остается вдвое меньше
+    @Test
+    public void switchesDenseBlockBetweenArrayAndBitmap() {
+        IdBitmap ids = new IdBitmap();
+        for (int id = 0; id < 10000; id += 2) {
+            ids.add(id);
+        }
+        long bitmapBytes = ids.estimateMemoryBytes();
+        assertTrue(bitmapBytes > 8 * 1024);
+        for (int id = 0; id < 10000; id += 2) {
+            assertTrue(ids.contains(id));
+            assertFalse(ids.contains(id + 1));
+        }
+
+        for (int id = 0; id < 8000; id += 2) {
+            ids.remove(id);
+        }
+        assertEquals(1000, ids.size());
+        assertTrue(ids.estimateMemoryBytes() < bitmapBytes);
+        assertFalse(ids.contains(7998));
+        assertTrue(ids.contains(8000));
+        assertTrue(ids.contains(9998));
+    }
+
+    @Test
+    public void matchesTreeSetOnRandomOperations() {
+        Random random = new Random(7);
+        IdBitmap ids = new IdBitmap();
+        TreeSet<Integer> model = new TreeSet<>();
+        for (int operation = 0; operation < 200000; operation++) {
+            int id = random.nextBoolean() ? random.nextInt(20000) : random.nextInt(1 << 22);
+            if (random.nextInt(3) == 0) {
+                assertEquals(model.remove(id), ids.remove(id));
+            } else {
+                assertEquals(model.add(id), ids.add(id));
+            }
+            int probe = random.nextInt(1 << 22);
+            assertEquals(model.contains(probe), ids.contains(probe));
+        }
+        assertEquals(model.size(), ids.size());
+        for (int id : model) {
+            assertTrue(ids.contains(id));
+        }
+    }
+}
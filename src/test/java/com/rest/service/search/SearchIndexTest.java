@@ -0,0 +1,219 @@
+package com.rest.service.search;
+
+import com.rest.entity.Employee;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class SearchIndexTest {
+
+    @Test
+    public void findsSubstringOfNameOrSurnameIgnoringCase() {
+        SearchIndex index = index(
+                employee(1, "Anna", "Ivanova", "IT", 100),
+                employee(2, "Boris", "Petrov", "HR", 200),
+                employee(3, "Ivan", "Annenkov", "IT", 300));
+
+        assertEquals("[1, 3]", ids(index.search("ann", null, null, null, 0, 10)));
+        assertEquals("[1, 3]", ids(index.search("IVAN", null, null, null, 0, 10)));
+        assertEquals("[2]", ids(index.search("etro", null, null, null, 0, 10)));
+        assertEquals("[]", ids(index.search("xyz", null, null, null, 0, 10)));
+    }
+
+    @Test
+    public void shortQueryMatchesOnlyPrefix() {
+        SearchIndex index = index(
+                employee(1, "Anna", "Smith", "IT", 100),
+                employee(2, "Hanna", "Smith", "IT", 100),
+                employee(3, "Boris", "Anikin", "IT", 100));
+
+        assertEquals("[1, 3]", ids(index.search("an", null, null, null, 0, 10)));
+        assertEquals("[1, 3]", ids(index.search("a", null, null, null, 0, 10)));
+    }
+
+    @Test
+    public void combinesDepartmentAndSalaryFilters() {
+        SearchIndex index = index(
+                employee(1, "Anna", "A", "IT", 100),
+                employee(2, "Anna", "B", "HR", 200),
+                employee(3, "Anna", "C", "IT", 300),
+                employee(4, "Boris", "D", "IT", 400));
+
+        assertEquals("[1, 3, 4]", ids(index.search(null, "IT", null, null, 0, 10)));
+        assertEquals("[3]", ids(index.search("anna", "IT", 150, null, 0, 10)));
+        assertEquals("[2, 3]", ids(index.search(null, null, 150, 350, 0, 10)));
+        assertEquals("[]", ids(index.search(null, "Sales", null, null, 0, 10)));
+    }
+
+    @Test
+    public void returnsOneExtraEmployeeAfterCursor() {
+        SearchIndex index = new SearchIndex();
+        for (int id = 1; id <= 10; id++) {
+            index.add(employee(id, "Name" + id, "Surname", "IT", id * 10));
+        }
+
+        assertEquals("[4, 5, 6]", ids(index.search(null, null, null, null, 3, 2)));
+        assertEquals("[10]", ids(index.search("name", null, null, null, 9, 5)));
+    }
+
+    @Test
+    public void patchReplacesTrigramsDepartmentAndVersion() {
+        SearchIndex index = index(employee(1, "Anna", "Smith", "IT", 100));
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("name", "Olga");
+        changes.put("department", "HR");
+        changes.put("salary", 500);
+
+        index.patch(1, changes);
+
+        assertEquals("[]", ids(index.search("anna", null, null, null, 0, 10)));
+        assertEquals("[]", ids(index.search(null, "IT", null, null, 0, 10)));
+        List<Employee> found = index.search("olg", "HR", 500, 500, 0, 10);
+        assertEquals(1, found.size());
+        assertEquals("Smith", found.get(0).getSurname());
+        assertEquals(1, found.get(0).getVersion());
+    }
+
+    @Test
+    public void patchToNullNameKeepsSurnameSearchable() {
+        SearchIndex index = index(employee(1, "Anna", "Smith", "IT", 100));
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("name", null);
+
+        index.patch(1, changes);
+
+        assertEquals("[]", ids(index.search("anna", null, null, null, 0, 10)));
+        assertEquals("[1]", ids(index.search("smi", null, null, null, 0, 10)));
+    }
+
+    @Test
+    public void removedEmployeeIsNotFoundAndCanBeAddedAgain() {
+        SearchIndex index = index(employee(1, "Anna", "A", "IT", 100), employee(2, "Anna", "B", "IT", 100));
+
+        index.remove(1);
+        assertEquals("[2]", ids(index.search("anna", null, null, null, 0, 10)));
+        assertEquals(1, index.getDocumentCount());
+
+        index.add(employee(1, "Olga", "A", "IT", 100));
+        assertEquals("[2]", ids(index.search("anna", null, null, null, 0, 10)));
+        assertEquals("[1]", ids(index.search("olga", null, null, null, 0, 10)));
+        assertEquals(2, index.getDocumentCount());
+    }
+
+    @Test
+    public void keepsIdOrderWhenSmallerIdArrivesLate() {
+        SearchIndex index = index(employee(1, "Anna", "A", "IT", 100), employee(5, "Anna", "B", "HR", 100));
+
+        index.add(employee(3, "Anna", "C", "IT", 100));
+
+        assertEquals("[1, 3, 5]", ids(index.search("anna", null, null, null, 0, 10)));
+        assertEquals("[1, 3]", ids(index.search(null, "IT", null, null, 0, 10)));
+        assertEquals("[3, 5]", ids(index.search(null, null, null, null, 1, 10)));
+    }
+
+    // Случайные добавления, изменения и удаления сверяются с простым перебором по TreeMap
+    @Test
+    public void matchesBruteForceOnRandomOperations() {
+        Random random = new Random(42);
+        String[] names = {"anna", "boris", "ivan", "olga", "petr", "maria", "annabel", "ivanov"};
+        String[] departments = {"IT", "HR", "Sales", null};
+        for (int round = 0; round < 20; round++) {
+            SearchIndex index = new SearchIndex();
+            TreeMap<Integer, Employee> model = new TreeMap<>();
+            for (int operation = 0; operation < 2000; operation++) {
+                int kind = random.nextInt(10);
+                int id = 1 + random.nextInt(400);
+                if (kind < 6) {
+                    Employee employee = employee(id, names[random.nextInt(names.length)],
+                            names[random.nextInt(names.length)] + "x", departments[random.nextInt(departments.length)],
+                            random.nextInt(10) * 100);
+                    index.add(employee);
+                    model.put(id, employee);
+                } else if (kind < 8) {
+                    index.remove(id);
+                    model.remove(id);
+                } else if (model.containsKey(id)) {
+                    Employee old = model.get(id);
+                    Employee patched = employee(id, names[random.nextInt(names.length)], old.getSurname(),
+                            old.getDepartment(), random.nextInt(10) * 100);
+                    patched.setVersion(old.getVersion() + 1);
+                    Map<String, Object> changes = new HashMap<>();
+                    changes.put("name", patched.getName());
+                    changes.put("salary", patched.getSalary());
+                    index.patch(id, changes);
+                    model.put(id, patched);
+                }
+                if (operation % 50 == 0) {
+                    String query = random.nextBoolean() ? null
+                            : names[random.nextInt(names.length)].substring(0, 1 + random.nextInt(3));
+                    String department = random.nextInt(3) == 0 ? departments[random.nextInt(3)] : null;
+                    Integer min = random.nextBoolean() ? null : random.nextInt(10) * 100;
+                    Integer max = random.nextBoolean() ? null : random.nextInt(10) * 100;
+                    int after = random.nextInt(300);
+                    int limit = 1 + random.nextInt(20);
+                    assertEquals(expected(model, query, department, min, max, after, limit),
+                            describe(index.search(query, department, min, max, after, limit)));
+                }
+            }
+            assertEquals(model.size(), index.getDocumentCount());
+        }
+    }
+
+    private static List<String> expected(TreeMap<Integer, Employee> model, String query, String department,
+                                         Integer min, Integer max, int after, int limit) {
+        List<Employee> matches = new ArrayList<>();
+        for (Employee employee : model.tailMap(after, false).values()) {
+            if (matches.size() == limit + 1) {
+                break;
+            }
+            if (department != null && !department.equals(employee.getDepartment())
+                    || min != null && employee.getSalary() < min
+                    || max != null && employee.getSalary() > max) {
+                continue;
+            }
+            if (query != null && !(query.length() < 3
+                    ? employee.getName().startsWith(query) || employee.getSurname().startsWith(query)
+                    : employee.getName().contains(query) || employee.getSurname().contains(query))) {
+                continue;
+            }
+            matches.add(employee);
+        }
+        return describe(matches);
+    }
+
+    private static List<String> describe(List<Employee> employees) {
+        List<String> result = new ArrayList<>();
+        for (Employee employee : employees) {
+            result.add(employee.getId() + ":" + employee.getName() + ":" + employee.getSalary()
+                    + ":" + employee.getVersion());
+        }
+        return result;
+    }
+
+    private static SearchIndex index(Employee... employees) {
+        SearchIndex index = new SearchIndex();
+        for (Employee employee : employees) {
+            index.add(employee);
+        }
+        return index;
+    }
+
+    private static Employee employee(int id, String name, String surname, String department, int salary) {
+        return new Employee(id, name, surname, department, salary);
+    }
+
+    private static String ids(List<Employee> employees) {
+        List<Integer> ids = new ArrayList<>();
+        for (Employee employee : employees) {
+            ids.add(employee.getId());
+        }
+        return ids.toString();
+    }
+}